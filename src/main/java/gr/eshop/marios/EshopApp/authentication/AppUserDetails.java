@@ -0,0 +1,92 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.core.enums.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the security-relevant columns of a {@link gr.eshop.marios.EshopApp.model.User},
+ * and of the first name shown to the user after login.
+ * <p>
+ * Unlike the entity it holds no customer or admin association and no persistence context,
+ * so it can be cached and shared between requests, and the login response is assembled from
+ * the instance the authentication manager has just verified. It deliberately does not implement
+ * {@link org.springframework.security.core.CredentialsContainer}: the authentication manager
+ * would otherwise erase the password of the cached instance after every login.
+ * </p>
+ *
+ * @param id        the id of the user
+ * @param uuid      the uuid of the user
+ * @param username  the username
+ * @param password  the password hash
+ * @param role      the role of the user
+ * @param enabled   whether the account is active
+ * @param firstname the first name shown to the user
+ */
+public record AppUserDetails(Long id, String uuid, String username, String password, Role role, boolean enabled,
+                             String firstname) implements UserDetails {
+
+    /**
+     * Creates the user details from the columns of a user and of its customer or admin.
+     *
+     * @param id                the id of the user
+     * @param uuid              the uuid of the user
+     * @param username          the username
+     * @param password          the password hash
+     * @param role              the role of the user
+     * @param enabled           whether the account is active
+     * @param customerFirstname the first name of the customer of the user, if any
+     * @param adminFirstname    the first name of the admin of the user, if any
+     */
+    public AppUserDetails(Long id, String uuid, String username, String password, Role role, boolean enabled,
+                          String customerFirstname, String adminFirstname) {
+        this(id, uuid, username, password, role, enabled, displayFirstname(role, customerFirstname, adminFirstname));
+    }
+
+    /**
+     * Chooses the first name shown to a user: the customer's or the admin's, as the role says,
+     * or a placeholder when the user has no such profile yet.
+     *
+     * @param role              the role of the user
+     * @param customerFirstname the first name of the customer of the user, if any
+     * @param adminFirstname    the first name of the admin of the user, if any
+     * @return the first name to show
+     */
+    public static String displayFirstname(Role role, String customerFirstname, String adminFirstname) {
+        if (role == Role.CUSTOMER_USER) {
+            return customerFirstname == null ? "User" : customerFirstname;
+        } else if (role == Role.ADMIN_USER) {
+            return adminFirstname == null ? "Admin" : adminFirstname;
+        }
+        return "SUPER_ADMIN";
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String toString() {
+        return "AppUserDetails[uuid=" + uuid + ", username=" + username + ", role=" + role + ", enabled=" + enabled + "]";
+    }
+}
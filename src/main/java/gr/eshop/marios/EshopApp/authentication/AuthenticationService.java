@@ -1,15 +1,10 @@
 package gr.eshop.marios.EshopApp.authentication;
 
-import gr.eshop.marios.EshopApp.core.enums.Role;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.eshop.marios.EshopApp.core.exceptions.AppTooManyRequestsException;
 import gr.eshop.marios.EshopApp.dto.AuthenticationRequestDTO;
 import gr.eshop.marios.EshopApp.dto.AuthenticationResponseDTO;
-import gr.eshop.marios.EshopApp.model.AdminUser;
-import gr.eshop.marios.EshopApp.model.Customer;
-import gr.eshop.marios.EshopApp.model.User;
-import gr.eshop.marios.EshopApp.repository.AdminUserRepository;
-import gr.eshop.marios.EshopApp.repository.CustomerRepository;
-import gr.eshop.marios.EshopApp.repository.UserRepository;
+import gr.eshop.marios.EshopApp.dto.RefreshTokenRequestDTO;
 import gr.eshop.marios.EshopApp.security.JwtService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -17,63 +12,70 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
-
 @Service
 @RequiredArgsConstructor
 public class AuthenticationService {
 
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
-    private final UserRepository userRepository;
-    private final CustomerRepository customerRepository;
-    private final AdminUserRepository adminUserRepository;
+    private final LoginRateLimiter loginRateLimiter;
+    private final PasswordVerificationPool passwordVerificationPool;
+    private final RefreshTokenService refreshTokenService;
 
 
     /**
      * Authenticates a user based on the provided credentials and generates a JWT token.
+     * <p>
+     * The attempt is first charged to the rate limits of the username and of the client, and
+     * the password check then runs on the {@link PasswordVerificationPool}. The response is built
+     * from the {@link AppUserDetails} the check has loaded, so the user is read by a single query,
+     * or none when it is cached.
+     * </p>
      *
-     * @param dto the AuthenticationRequestDTO containing the username and password
-     * @return an AuthenticationResponseDTO containing the user's first name, UUID, and JWT token
+     * @param dto      the AuthenticationRequestDTO containing the username and password
+     * @param clientIp the address of the client
+     * @return an AuthenticationResponseDTO containing the user's first name, UUID, JWT token and refresh token
      * @throws AppObjectNotAuthorizedException if the user is not authorized or does not exist
+     * @throws AppTooManyRequestsException     if a rate limit is exceeded or the verification pool is saturated
      */
-    public AuthenticationResponseDTO authenticate(AuthenticationRequestDTO dto)
-            throws AppObjectNotAuthorizedException {
-
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(dto.getUsername(), dto.getPassword()));
-
-        User user = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new AppObjectNotAuthorizedException("User", "User not authorized"));
+    public AuthenticationResponseDTO authenticate(AuthenticationRequestDTO dto, String clientIp)
+            throws AppObjectNotAuthorizedException, AppTooManyRequestsException {
 
-        String token = jwtService.generateToken(user.getUsername(), user.getRole().name());
+        loginRateLimiter.acquire(dto.getUsername(), clientIp);
+        Authentication authentication = passwordVerificationPool.verify(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(dto.getUsername(), dto.getPassword())));
 
-        String firstname= "";
-        String uuid = user.getUuid();
-
-        if (user.getRole() == Role.CUSTOMER_USER) {
-            Optional<Customer> customer = customerRepository.findByUserUuid(user.getUuid());
-            if (customer.isEmpty()) {
-                firstname = "User";
+        if (!(authentication.getPrincipal() instanceof AppUserDetails user)) {
+            throw new AppObjectNotAuthorizedException("User", "User not authorized");
+        }
 
-            } else {
-                firstname = customer.get().getFirstname();
-            }
+        String token = jwtService.generateToken(user.username(), user.role().name(), user.uuid());
+        String refreshToken = refreshTokenService.issue(user.id());
 
-        } else if (user.getRole() == Role.ADMIN_USER) {
-            Optional<AdminUser> admin = adminUserRepository.findByUserUuid(user.getUuid());
-            if (admin.isEmpty()) {
-                firstname = "Admin";
-            } else {
-                firstname = admin.get().getFirstname();
+        return new AuthenticationResponseDTO(user.firstname(), user.uuid(), token, refreshToken);
+    }
 
-            }
-        } else {
-            firstname = "SUPER_ADMIN";
+    /**
+     * Issues a new access token and a new refresh token in exchange for a refresh token.
+     * <p>
+     * The user is read together with the refresh token, so no password is checked and no
+     * {@link org.springframework.security.core.userdetails.UserDetails} is loaded. The presented
+     * refresh token is used up.
+     * </p>
+     *
+     * @param dto the RefreshTokenRequestDTO containing the refresh token
+     * @return an AuthenticationResponseDTO containing the user's first name, UUID, JWT token and new refresh token
+     * @throws AppObjectNotAuthorizedException if the refresh token is invalid or expired or the user is inactive
+     */
+    public AuthenticationResponseDTO refresh(RefreshTokenRequestDTO dto) throws AppObjectNotAuthorizedException {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(dto.getRefreshToken());
+        RefreshTokenPrincipal principal = rotation.principal();
 
-        }
+        String token = jwtService.generateToken(principal.username(), principal.role().name(), principal.uuid());
 
-        return new AuthenticationResponseDTO(firstname, uuid, token);
+        return new AuthenticationResponseDTO(
+                AppUserDetails.displayFirstname(principal.role(), principal.customerFirstname(), principal.adminFirstname()),
+                principal.uuid(), token, rotation.refreshToken());
     }
 }
 
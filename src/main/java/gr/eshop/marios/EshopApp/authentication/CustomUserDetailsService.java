@@ -1,18 +1,47 @@
 package gr.eshop.marios.EshopApp.authentication;
 
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import gr.eshop.marios.EshopApp.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+
+/**
+ * Loads the users for authentication, through a bounded and time-limited cache.
+ * <p>
+ * The cache holds immutable {@link AppUserDetails}, selected column by column, never the
+ * {@link gr.eshop.marios.EshopApp.model.User} entity. Services that change a user call {@link #evict(String)}; the time limit bounds how
+ * long a change made behind their back, e.g. directly in the database, can go unnoticed.
+ * The hits and misses are published as the {@code cache.*} metrics of the {@code userDetails} cache.
+ * </p>
+ */
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final Cache<String, AppUserDetails> users;
+
+    public CustomUserDetailsService(UserRepository userRepository, MeterRegistry meterRegistry,
+                                    @Value("${eshop.security.user-cache.size:10000}") long cacheSize,
+                                    @Value("${eshop.security.user-cache.ttl:5m}") Duration timeToLive) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "userDetails");
+    }
 
     /**
      * Loads the user details for authentication based on the provided username.
@@ -24,9 +53,28 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
-        return userRepository.findByUsername(username).orElseThrow(()
-                -> new UsernameNotFoundException("User with username " + username + " not found"));
-
+        AppUserDetails user = users.get(username, key -> userRepository.findUserDetailsByUsername(key).orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User with username " + username + " not found");
+        }
+        return user;
     }
 
+    /**
+     * Evicts a user from the cache, now and again once the current transaction completes,
+     * so a concurrent request cannot cache the state from before the change was committed.
+     *
+     * @param username the username of the changed user
+     */
+    public void evict(String username) {
+        users.invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    users.invalidate(username);
+                }
+            });
+        }
+    }
 }
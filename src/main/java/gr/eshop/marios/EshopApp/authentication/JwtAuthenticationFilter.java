@@ -1,7 +1,10 @@
 package gr.eshop.marios.EshopApp.authentication;
 
 
+import gr.eshop.marios.EshopApp.security.JwtPrincipal;
 import gr.eshop.marios.EshopApp.security.JwtService;
+import gr.eshop.marios.EshopApp.security.TokenRevocationList;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -10,8 +13,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -20,6 +26,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -28,6 +35,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationList tokenRevocationList;
+
+    /**
+     * When true the {@link Authentication} is built from the verified claims of the token alone,
+     * without loading the user; deleted users and changed credentials are caught by the
+     * {@link TokenRevocationList} instead.
+     */
+    @Value("${eshop.security.jwt.stateless:false}")
+    private boolean stateless;
 
 
     /**
@@ -40,7 +56,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         String path = request.getRequestURI();
-        return path.startsWith("/swagger-ui") || path.startsWith("/v3/api-docs");
+        // the refresh token stands in for the access token, which may well have expired,
+        // and the product images are public
+        return path.startsWith("/swagger-ui") || path.startsWith("/v3/api-docs") || path.equals("/api/auth/refreshToken")
+                || path.startsWith("/uploads/");
     }
 
     /**
@@ -60,9 +79,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         LOGGER.info("Incoming request: " + request.getRequestURI());
 
-        // Εξαίρεση Swagger Endpoints
+        // Εξαίρεση Swagger και refresh token Endpoints
         if (shouldNotFilter(request)) {
-            LOGGER.info("Skipping JWT validation for Swagger endpoint: " + request.getRequestURI());
+            LOGGER.info("Skipping JWT validation for endpoint: " + request.getRequestURI());
             filterChain.doFilter(request, response);
             return;
         }
@@ -81,19 +100,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            username = jwtService.extractSubject(jwt);
-            userRole = jwtService.getStringClaim(jwt, "role");
+            Claims claims = jwtService.parseToken(jwt);
+            username = claims.getSubject();
+            userRole = claims.get("role", String.class);
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                if (tokenRevocationList.isRevoked(username, claims.getIssuedAt())) {
+                    LOGGER.warn("WARN: Revoked token of user {}", username);
+                    response.setStatus(HttpStatus.UNAUTHORIZED.value());
+                    response.setContentType("application/json");
+                    response.getWriter().write("{\"code\": \"revoked token\", \"message\": \"Token has been revoked\" }");
+                    return;
+                }
 
-                if(jwtService.isTokenValid(jwt, userDetails)) {
+                if (stateless) {
+                    JwtPrincipal principal = new JwtPrincipal(username, userRole, claims.get("uuid", String.class));
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities()
+                            principal, null, userRole == null ? List.of() : List.of(new SimpleGrantedAuthority(userRole))
                     );
 
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                } else {
+                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+
+                    if(jwtService.isTokenValid(claims, userDetails)) {
+                        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                                userDetails, null, userDetails.getAuthorities()
+                        );
+
+                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        SecurityContextHolder.getContext().setAuthentication(authToken);
+                    }
                 }
             } else {
                 LOGGER.warn("Token is not valid" + request.getRequestURI());
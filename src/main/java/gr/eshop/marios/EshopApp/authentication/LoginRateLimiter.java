@@ -0,0 +1,102 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.eshop.marios.EshopApp.core.exceptions.AppTooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Token-bucket rate limits for login attempts, one bucket per username and one per client IP.
+ * <p>
+ * A bucket holds up to {@code capacity} attempts and refills at {@code capacity} attempts per
+ * {@code period}, so short bursts pass and sustained guessing is slowed down to the refill
+ * rate. Idle buckets are dropped from the bounded caches, which is the same as a full bucket.
+ * </p>
+ * <p>
+ * The client IP is the remote address of the request. A deployment behind a load balancer sets
+ * {@code server.forward-headers-strategy=native} and narrows
+ * {@code server.tomcat.remoteip.internal-proxies} to the balancer, so Tomcat replaces it with the
+ * client from {@code X-Forwarded-For} for requests from that proxy only and clients cannot pick
+ * their own bucket.
+ * </p>
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final Cache<String, TokenBucket> byUsername;
+    private final Cache<String, TokenBucket> byIp;
+    private final int usernameCapacity;
+    private final int ipCapacity;
+    private final Duration period;
+
+    public LoginRateLimiter(@Value("${eshop.security.login.per-username.capacity:5}") int usernameCapacity,
+                            @Value("${eshop.security.login.per-ip.capacity:20}") int ipCapacity,
+                            @Value("${eshop.security.login.period:1m}") Duration period) {
+        this.usernameCapacity = usernameCapacity;
+        this.ipCapacity = ipCapacity;
+        this.period = period;
+        this.byUsername = Caffeine.newBuilder().maximumSize(100_000).expireAfterAccess(period.multipliedBy(2)).build();
+        this.byIp = Caffeine.newBuilder().maximumSize(100_000).expireAfterAccess(period.multipliedBy(2)).build();
+    }
+
+    /**
+     * Takes one login attempt from the bucket of the client IP and from the bucket of the username.
+     *
+     * @param username the username being logged into
+     * @param clientIp the address of the client
+     * @throws AppTooManyRequestsException if either bucket is empty
+     */
+    public void acquire(String username, String clientIp) throws AppTooManyRequestsException {
+        if (clientIp != null) {
+            take(byIp.get(clientIp, key -> new TokenBucket(ipCapacity, period)), "Too many login attempts from this address");
+        }
+        if (username != null) {
+            take(byUsername.get(username.toLowerCase(Locale.ROOT), key -> new TokenBucket(usernameCapacity, period)),
+                    "Too many login attempts for this user");
+        }
+    }
+
+    private static void take(TokenBucket bucket, String message) throws AppTooManyRequestsException {
+        long waitNanos = bucket.tryTake(System.nanoTime());
+        if (waitNanos > 0) {
+            throw new AppTooManyRequestsException("Login", message, Math.max(1, Duration.ofNanos(waitNanos).toSeconds()));
+        }
+    }
+
+    /**
+     * A bucket of attempts refilled continuously at {@code capacity} tokens per {@code period}.
+     */
+    private static final class TokenBucket {
+
+        private final int capacity;
+        private final double nanosPerToken;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int capacity, Duration period) {
+            this.capacity = capacity;
+            this.nanosPerToken = (double) period.toNanos() / capacity;
+            this.tokens = capacity;
+            this.refilledAt = System.nanoTime();
+        }
+
+        /**
+         * Takes a token if there is one.
+         *
+         * @return 0 if a token was taken, otherwise the nanoseconds until the next token
+         */
+        synchronized long tryTake(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) / nanosPerToken);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) * nanosPerToken);
+        }
+    }
+}
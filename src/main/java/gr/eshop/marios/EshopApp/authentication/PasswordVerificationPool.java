@@ -0,0 +1,96 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppTooManyRequestsException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated, size-limited pool running the BCrypt password checks of the logins.
+ * <p>
+ * BCrypt is deliberately slow, and a login storm run on the request threads takes the CPU from
+ * every other endpoint. Here at most {@code threads} hashes run at a time and at most
+ * {@code queue-capacity} logins wait for one; a login arriving at a full queue, or waiting longer
+ * than {@code timeout}, is rejected with 429 so the client backs off. The request thread still
+ * waits for its result, but only the pool threads use the CPU.
+ * </p>
+ */
+@Component
+public class PasswordVerificationPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordVerificationPool.class);
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    public PasswordVerificationPool(@Value("${eshop.security.login.threads:0}") int threads,
+                                    @Value("${eshop.security.login.queue-capacity:64}") int queueCapacity,
+                                    @Value("${eshop.security.login.timeout:10s}") Duration timeout) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-verification-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeout = timeout;
+        LOGGER.info("Password verification pool: {} threads, {} queued logins", poolSize, queueCapacity);
+    }
+
+    /**
+     * Runs a password check on the pool and waits for its result.
+     * <p>
+     * Unchecked exceptions of the check, such as
+     * {@link org.springframework.security.authentication.BadCredentialsException}, are rethrown as they are.
+     * </p>
+     *
+     * @param verification the password check
+     * @param <T>          the result type
+     * @return the result of the check
+     * @throws AppTooManyRequestsException if the queue is full or the check did not run in time
+     */
+    public <T> T verify(Supplier<T> verification) throws AppTooManyRequestsException {
+        Future<T> future;
+        try {
+            future = executor.submit(verification::get);
+        } catch (RejectedExecutionException e) {
+            throw new AppTooManyRequestsException("Login", "Too many logins in progress, please retry", RETRY_AFTER_SECONDS);
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new AppTooManyRequestsException("Login", "Too many logins in progress, please retry", RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while verifying the password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if (e.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of verifications waiting for a thread
+     */
+    int queuedVerifications() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,22 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.core.enums.Role;
+
+import java.time.LocalDateTime;
+
+/**
+ * The user behind a refresh token, selected together with the token in one query.
+ *
+ * @param tokenId           the id of the refresh token
+ * @param expiresAt         the expiry of the refresh token
+ * @param userId            the id of the user
+ * @param uuid              the uuid of the user
+ * @param username          the username
+ * @param role              the role of the user
+ * @param enabled           whether the account is active
+ * @param customerFirstname the first name of the customer of the user, if any
+ * @param adminFirstname    the first name of the admin of the user, if any
+ */
+public record RefreshTokenPrincipal(Long tokenId, LocalDateTime expiresAt, Long userId, String uuid, String username,
+                                    Role role, boolean enabled, String customerFirstname, String adminFirstname) {
+}
@@ -0,0 +1,144 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.eshop.marios.EshopApp.model.RefreshToken;
+import gr.eshop.marios.EshopApp.repository.RefreshTokenRepository;
+import gr.eshop.marios.EshopApp.repository.UserRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Issues and rotates the refresh tokens of the users.
+ * <p>
+ * A refresh token is 256 random bits handed to the client once; only its SHA-256 hash is
+ * stored, so a leaked table does not leak usable tokens. Every refresh deletes the presented
+ * token and issues a new one valid for another {@code ttl}: a token is used at most once, and
+ * a client that keeps refreshing stays logged in without sending its password again.
+ * </p>
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final Duration ttl;
+    private final TransactionTemplate newTransaction;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * A refresh token exchanged for a new one.
+     *
+     * @param principal    the user the token was issued to
+     * @param refreshToken the new refresh token
+     */
+    public record Rotation(RefreshTokenPrincipal principal, String refreshToken) {
+    }
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${eshop.security.refresh-token.ttl:14d}") Duration ttl) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.ttl = ttl;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Issues a new refresh token to a user.
+     *
+     * @param userId the id of the user
+     * @return the refresh token, to be handed to the client
+     */
+    @Transactional
+    public String issue(Long userId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(new RefreshToken(null, hash(token), userRepository.getReferenceById(userId),
+                LocalDateTime.now().plus(ttl)));
+        return token;
+    }
+
+    /**
+     * Exchanges a refresh token for a new one.
+     *
+     * @param refreshToken the refresh token presented by the client
+     * @return the user of the token and the new refresh token
+     * @throws AppObjectNotAuthorizedException if the token is unknown, already used, expired or its user is inactive
+     */
+    @Transactional
+    public Rotation rotate(String refreshToken) throws AppObjectNotAuthorizedException {
+        RefreshTokenPrincipal principal = refreshTokenRepository.findPrincipalByTokenHash(hash(refreshToken))
+                .orElseThrow(() -> new AppObjectNotAuthorizedException("RefreshToken", "Invalid refresh token"));
+
+        if (refreshTokenRepository.deleteTokenById(principal.tokenId()) == 0) {
+            throw new AppObjectNotAuthorizedException("RefreshToken", "Invalid refresh token");
+        }
+        if (principal.expiresAt().isBefore(LocalDateTime.now())) {
+            throw new AppObjectNotAuthorizedException("RefreshToken", "Refresh token expired");
+        }
+        if (!principal.enabled()) {
+            throw new AppObjectNotAuthorizedException("User", "User not authorized");
+        }
+        return new Rotation(principal, issue(principal.userId()));
+    }
+
+    /**
+     * Deletes every refresh token of a user, now and again once the current transaction has
+     * committed, so a token rotated in before the commit does not outlive the revocation.
+     *
+     * @param userId the id of the user
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    newTransaction.executeWithoutResult(status -> refreshTokenRepository.deleteByUserId(userId));
+                }
+            });
+        }
+    }
+
+    /**
+     * Deletes the expired refresh tokens.
+     */
+    @Scheduled(fixedDelayString = "${eshop.security.refresh-token.prune-interval-ms:3600000}")
+    @Transactional
+    public void prune() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) LOGGER.info("Deleted {} expired refresh tokens", deleted);
+    }
+
+    private static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.core.specifications.ProductSpecification;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.mapper.Mapper;
+import gr.eshop.marios.EshopApp.repository.OrderItemRepository;
+import gr.eshop.marios.EshopApp.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Serves the product catalog from memory.
+ * <p>
+ * The catalog is loaded once when the application is ready and is then kept in sync
+ * through {@link ProductChangedEvent}s: after the publishing transaction commits the
+ * changed ids are queued, and a single refresher thread reloads them in batches and swaps
+ * in a new {@link ProductCatalogSnapshot}. Readers never block and never touch the database.
+ * The popularity of the suggestions follows the sales on a timer instead, so a stream of
+ * orders does not rebuild the suggestion trie for every batch.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductCatalog.class);
+    private static final Sort BY_ID = Sort.by("id");
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final Mapper mapper;
+    private final TextNormalizer textNormalizer;
+    private final AtomicReference<ProductCatalogSnapshot> snapshot =
+            new AtomicReference<>(ProductCatalogSnapshot.empty());
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-catalog-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Returns the current snapshot, loading the catalog first if this is the very first read.
+     *
+     * @return the current {@link ProductCatalogSnapshot}
+     */
+    public ProductCatalogSnapshot getSnapshot() {
+        ProductCatalogSnapshot current = snapshot.get();
+        if (!current.isLoaded()) {
+            return refreshAll();
+        }
+        return current;
+    }
+
+    /**
+     * Loads the whole catalog from the database.
+     *
+     * @return the newly installed snapshot
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized ProductCatalogSnapshot refreshAll() {
+        List<ProductReadOnlyDTO> products = productRepository.findProjections(null, BY_ID, 0).stream()
+                .map(mapper::mapToProductReadOnlyDTO)
+                .toList();
+        ProductCatalogSnapshot loaded = ProductCatalogSnapshot.of(snapshot.get().getVersion() + 1, products,
+                toMap(orderItemRepository.findSales()), textNormalizer);
+        snapshot.set(loaded);
+        LOGGER.info("Product catalog loaded: {} products, version {}", loaded.size(), loaded.getVersion());
+        return loaded;
+    }
+
+    /**
+     * Queues the changed products for reloading once the transaction that changed them has committed.
+     * <p>
+     * The reload itself runs on the refresher thread: the committing thread still holds its
+     * connection at this point, and asking the pool for a second one here would exhaust it
+     * under concurrent writes. Ids queued while a reload is pending are coalesced into it.
+     * </p>
+     *
+     * @param event the {@link ProductChangedEvent} carrying the ids of the changed products
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        pendingIds.addAll(event.productIds());
+        if (refreshScheduled.compareAndSet(false, true)) {
+            refresher.execute(this::refreshPending);
+        }
+    }
+
+    private void refreshPending() {
+        refreshScheduled.set(false);
+        Set<Long> changedIds = new HashSet<>();
+        for (Iterator<Long> it = pendingIds.iterator(); it.hasNext(); ) {
+            changedIds.add(it.next());
+            it.remove();
+        }
+        if (changedIds.isEmpty()) return;
+
+        try {
+            applyChanges(changedIds);
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not refresh products {} in the catalog", changedIds, e);
+        }
+    }
+
+    private synchronized void applyChanges(Set<Long> changedIds) {
+        if (!snapshot.get().isLoaded()) {
+            refreshAll();
+            return;
+        }
+        List<ProductReadOnlyDTO> upserts = productRepository
+                .findProjections(ProductSpecification.trProductIdIn(changedIds), BY_ID, 0).stream()
+                .map(mapper::mapToProductReadOnlyDTO)
+                .toList();
+        Set<Long> removedIds = new HashSet<>(changedIds);
+        upserts.forEach(product -> removedIds.remove(product.getId()));
+
+        List<String> skus = upserts.stream().map(ProductReadOnlyDTO::getSku).toList();
+        Map<String, Long> sales = skus.isEmpty() ? Map.of() : toMap(orderItemRepository.findSalesBySkuIn(skus));
+
+        ProductCatalogSnapshot next = snapshot.get().withChanges(upserts, removedIds, sales);
+        snapshot.set(next);
+        LOGGER.debug("Product catalog updated to version {}: {} changed, {} removed",
+                next.getVersion(), upserts.size(), removedIds.size());
+    }
+
+    /**
+     * Rebuilds the suggestions of the current snapshot if sales changed since they were built.
+     */
+    @Scheduled(fixedDelayString = "${eshop.catalog.suggestions.refresh-interval-ms:60000}")
+    public synchronized void refreshSuggestions() {
+        ProductCatalogSnapshot current = snapshot.get();
+        ProductCatalogSnapshot next = current.withFreshSuggestions();
+        if (next != current) {
+            snapshot.set(next);
+            LOGGER.debug("Product catalog suggestions refreshed at version {}", next.getVersion());
+        }
+    }
+
+    private static Map<String, Long> toMap(List<ProductSales> sales) {
+        Map<String, Long> salesBySku = new HashMap<>();
+        sales.forEach(productSales -> salesBySku.put(productSales.sku(), productSales.sold()));
+        return salesBySku;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,462 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppInvalidCursorException;
+import gr.eshop.marios.EshopApp.core.filters.KeysetCursor;
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
+import gr.eshop.marios.EshopApp.core.filters.ProductFilters;
+import gr.eshop.marios.EshopApp.dto.ProductFacetCount;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import io.micrometer.common.util.StringUtils;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Immutable, versioned view of the whole product catalog.
+ * <p>
+ * Holds the pre-built {@link ProductReadOnlyDTO}s ordered by id, plus lookup
+ * indexes by id, uuid and sku, a {@link ProductSearchIndex} for text search, a
+ * {@link ProductFilterIndex} for the brand, category and flag filters, a
+ * {@link ProductPriceIndex} for price ranges and price-ordered pages and a
+ * {@link SuggestionTrie} for autocompletion ranked by units sold.
+ * A snapshot is never modified; changes produce a new snapshot through
+ * {@link #withChanges(Collection, Collection, Map)}. Snapshots are built on the
+ * catalog's loading and refresher threads, so readers never pay for the indexes.
+ * </p>
+ * <p>
+ * Building the indexes costs {@code O(n log n)} over the whole catalog, which is paid when the
+ * catalog is loaded and when products are created or deleted. The far more frequent edits,
+ * stock and sales changes of existing products leave every position in place, so the next
+ * snapshot patches the filter and price indexes for the changed positions only and shares the
+ * search index and the suggestion trie unless their texts changed. The popularity of the
+ * suggestions then lags the sales until {@link #withFreshSuggestions()} rebuilds the trie.
+ * </p>
+ */
+public final class ProductCatalogSnapshot {
+
+    private static final ProductCatalogSnapshot EMPTY =
+            new ProductCatalogSnapshot(0, new TreeMap<>(), Map.of(), new TextNormalizer(true));
+
+    private static final String PRICE = "price";
+
+    @Getter
+    private final long version;
+    private final List<ProductReadOnlyDTO> products;
+    private final long[] ids;
+    private final Map<Long, ProductReadOnlyDTO> byId;
+    private final Map<String, ProductReadOnlyDTO> byUuid;
+    private final Map<String, ProductReadOnlyDTO> bySku;
+    private final TextNormalizer normalizer;
+    private final ProductSearchIndex searchIndex;
+    private final ProductFilterIndex filterIndex;
+    private final ProductPriceIndex priceIndex;
+    private final Map<String, Long> salesBySku;
+    private final SuggestionTrie suggestions;
+    private final boolean staleSuggestions;
+
+    private ProductCatalogSnapshot(long version, SortedMap<Long, ProductReadOnlyDTO> productsById,
+                                   Map<String, Long> salesBySku, TextNormalizer normalizer) {
+        this.version = version;
+        this.products = List.copyOf(productsById.values());
+        this.normalizer = normalizer;
+        this.ids = this.products.stream().mapToLong(ProductReadOnlyDTO::getId).toArray();
+        this.searchIndex = new ProductSearchIndex(this.products, normalizer);
+        this.filterIndex = new ProductFilterIndex(this.products);
+        this.priceIndex = new ProductPriceIndex(this.products);
+        this.salesBySku = Map.copyOf(salesBySku);
+        this.suggestions = new SuggestionTrie(this.products, this.salesBySku, normalizer);
+        this.staleSuggestions = false;
+
+        Map<Long, ProductReadOnlyDTO> ids = new HashMap<>();
+        Map<String, ProductReadOnlyDTO> uuids = new HashMap<>();
+        Map<String, ProductReadOnlyDTO> skus = new HashMap<>();
+        for (ProductReadOnlyDTO product : this.products) {
+            ids.put(product.getId(), product);
+            if (product.getUuid() != null) uuids.put(product.getUuid(), product);
+            if (product.getSku() != null) skus.put(product.getSku(), product);
+        }
+        this.byId = Collections.unmodifiableMap(ids);
+        this.byUuid = Collections.unmodifiableMap(uuids);
+        this.bySku = Collections.unmodifiableMap(skus);
+    }
+
+    private ProductCatalogSnapshot(ProductCatalogSnapshot previous, SortedMap<Integer, ProductReadOnlyDTO> changes,
+                                   Map<String, Long> salesBySku, boolean salesChanged) {
+        List<ProductReadOnlyDTO> products = new ArrayList<>(previous.products);
+        changes.forEach(products::set);
+
+        this.version = previous.version + 1;
+        this.products = Collections.unmodifiableList(products);
+        this.normalizer = previous.normalizer;
+        this.ids = previous.ids;
+        this.searchIndex = previous.searchIndex.withChanges(this.products, changes.keySet());
+        this.filterIndex = previous.filterIndex.withChanges(previous.products, changes);
+        this.priceIndex = previous.priceIndex.withChanges(previous.products, this.products, changes.keySet());
+        this.salesBySku = Map.copyOf(salesBySku);
+
+        boolean sameTerms = changes.entrySet().stream()
+                .allMatch(change -> sameSuggestionTerms(previous.products.get(change.getKey()), change.getValue()));
+        this.suggestions = sameTerms ? previous.suggestions : new SuggestionTrie(this.products, this.salesBySku, normalizer);
+        this.staleSuggestions = sameTerms && (previous.staleSuggestions || salesChanged);
+
+        Map<Long, ProductReadOnlyDTO> ids = new HashMap<>(previous.byId);
+        Map<String, ProductReadOnlyDTO> uuids = new HashMap<>(previous.byUuid);
+        Map<String, ProductReadOnlyDTO> skus = new HashMap<>(previous.bySku);
+        changes.forEach((position, product) -> {
+            ProductReadOnlyDTO old = previous.products.get(position);
+            if (old.getUuid() != null) uuids.remove(old.getUuid(), old);
+            if (old.getSku() != null) skus.remove(old.getSku(), old);
+        });
+        changes.values().forEach(product -> {
+            ids.put(product.getId(), product);
+            if (product.getUuid() != null) uuids.put(product.getUuid(), product);
+            if (product.getSku() != null) skus.put(product.getSku(), product);
+        });
+        this.byId = Collections.unmodifiableMap(ids);
+        this.byUuid = Collections.unmodifiableMap(uuids);
+        this.bySku = Collections.unmodifiableMap(skus);
+    }
+
+    private ProductCatalogSnapshot(ProductCatalogSnapshot previous, SuggestionTrie suggestions) {
+        this.version = previous.version + 1;
+        this.products = previous.products;
+        this.normalizer = previous.normalizer;
+        this.ids = previous.ids;
+        this.searchIndex = previous.searchIndex;
+        this.filterIndex = previous.filterIndex;
+        this.priceIndex = previous.priceIndex;
+        this.salesBySku = previous.salesBySku;
+        this.suggestions = suggestions;
+        this.staleSuggestions = false;
+        this.byId = previous.byId;
+        this.byUuid = previous.byUuid;
+        this.bySku = previous.bySku;
+    }
+
+    /**
+     * Returns the empty snapshot used before the catalog has been loaded.
+     *
+     * @return the empty snapshot with version 0
+     */
+    public static ProductCatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a snapshot from a complete list of products.
+     *
+     * @param version    the version of the new snapshot
+     * @param products   all the products of the catalog
+     * @param salesBySku the units sold per SKU
+     * @param normalizer the normalizer of the search indexes
+     * @return the new snapshot
+     */
+    public static ProductCatalogSnapshot of(long version, Collection<ProductReadOnlyDTO> products,
+                                            Map<String, Long> salesBySku, TextNormalizer normalizer) {
+        SortedMap<Long, ProductReadOnlyDTO> productsById = new TreeMap<>();
+        products.forEach(product -> productsById.put(product.getId(), product));
+        return new ProductCatalogSnapshot(version, productsById, salesBySku, normalizer);
+    }
+
+    /**
+     * Creates the next version of this snapshot by replacing the given products
+     * and dropping the removed ids. This snapshot is left untouched.
+     * <p>
+     * When every upserted product already exists and none is removed, the indexes are patched
+     * for the changed positions; otherwise they are rebuilt over the whole catalog.
+     * </p>
+     *
+     * @param upserts    the products that were created or updated
+     * @param removedIds the ids of the products that no longer exist
+     * @param sales      the current units sold of the upserted products
+     * @return the new snapshot
+     */
+    public ProductCatalogSnapshot withChanges(Collection<ProductReadOnlyDTO> upserts, Collection<Long> removedIds,
+                                              Map<String, Long> sales) {
+        Map<String, Long> nextSales = new HashMap<>(salesBySku);
+        nextSales.putAll(sales);
+
+        SortedMap<Integer, ProductReadOnlyDTO> changes = inPlaceChanges(upserts, removedIds);
+        if (changes != null) {
+            boolean salesChanged = sales.entrySet().stream()
+                    .anyMatch(sold -> !sold.getValue().equals(salesBySku.getOrDefault(sold.getKey(), 0L)));
+            return new ProductCatalogSnapshot(this, changes, nextSales, salesChanged);
+        }
+
+        SortedMap<Long, ProductReadOnlyDTO> productsById = new TreeMap<>(byId);
+        removedIds.forEach(productsById::remove);
+        upserts.forEach(product -> productsById.put(product.getId(), product));
+        return new ProductCatalogSnapshot(version + 1, productsById, nextSales, normalizer);
+    }
+
+    /**
+     * Rebuilds the suggestion trie if the sales changed since it was built.
+     *
+     * @return the next version of this snapshot with current suggestions, or this snapshot
+     * if its suggestions are current
+     */
+    public ProductCatalogSnapshot withFreshSuggestions() {
+        if (!staleSuggestions) return this;
+        return new ProductCatalogSnapshot(this, new SuggestionTrie(products, salesBySku, normalizer));
+    }
+
+    /**
+     * Returns the upserts by position when they all replace existing products and nothing is
+     * removed, or null when positions shift and the indexes must be rebuilt.
+     */
+    private SortedMap<Integer, ProductReadOnlyDTO> inPlaceChanges(Collection<ProductReadOnlyDTO> upserts,
+                                                                  Collection<Long> removedIds) {
+        if (removedIds.stream().anyMatch(byId::containsKey)) return null;
+        SortedMap<Integer, ProductReadOnlyDTO> changes = new TreeMap<>();
+        for (ProductReadOnlyDTO product : upserts) {
+            int position = Arrays.binarySearch(ids, product.getId());
+            if (position < 0) return null;
+            changes.put(position, product);
+        }
+        return changes;
+    }
+
+    private static boolean sameSuggestionTerms(ProductReadOnlyDTO before, ProductReadOnlyDTO after) {
+        return Objects.equals(before.getUuid(), after.getUuid())
+                && Boolean.TRUE.equals(before.getIsActive()) == Boolean.TRUE.equals(after.getIsActive())
+                && Objects.equals(before.getName(), after.getName())
+                && Objects.equals(before.getSku(), after.getSku())
+                && Objects.equals(brandName(before), brandName(after))
+                && Objects.equals(categoryName(before), categoryName(after));
+    }
+
+    private static String brandName(ProductReadOnlyDTO product) {
+        return product.getBrand() == null ? null : product.getBrand().getBrandName();
+    }
+
+    private static String categoryName(ProductReadOnlyDTO product) {
+        return product.getCategory() == null ? null : product.getCategory().getCategoryName();
+    }
+
+    public boolean isLoaded() {
+        return version > 0;
+    }
+
+    /**
+     * @return all the products ordered by id, as an unmodifiable list
+     */
+    public List<ProductReadOnlyDTO> getProducts() {
+        return products;
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    public Optional<ProductReadOnlyDTO> findById(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public Optional<ProductReadOnlyDTO> findByUuid(String uuid) {
+        return Optional.ofNullable(byUuid.get(uuid));
+    }
+
+    public Optional<ProductReadOnlyDTO> findBySku(String sku) {
+        return Optional.ofNullable(bySku.get(sku));
+    }
+
+    /**
+     * Finds the products whose field contains the query, ignoring case, accents and Greeklish.
+     *
+     * @param field the field to search
+     * @param query the text to look for
+     * @return the matching products ordered by id
+     */
+    public List<ProductReadOnlyDTO> search(ProductSearchIndex.Field field, String query) {
+        return searchIndex.search(field, query);
+    }
+
+    /**
+     * Returns the most popular completions of what was typed in the search box.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions
+     * @return the suggestions, most popular first
+     */
+    public List<SuggestionTrie.Suggestion> suggest(String prefix, int limit) {
+        return suggestions.suggest(prefix, limit);
+    }
+
+    /**
+     * Returns a page of products ordered by id in ascending order.
+     *
+     * @param pageable the requested page; its sort is ignored
+     * @return the requested page of products
+     */
+    public Page<ProductReadOnlyDTO> getPage(Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), products.size());
+        int to = Math.min(from + pageable.getPageSize(), products.size());
+        return new PageImpl<>(products.subList(from, to), pageable, products.size());
+    }
+
+    /**
+     * Finds the positions of the products matching the brand, category, active, stock, price,
+     * name and sku filters, by AND-ing the bitmaps of the filter, price and search indexes.
+     *
+     * @param filters the filters; the uuid and id filters are not supported and are ignored
+     * @return a new bitmap with the positions of the matching products
+     */
+    public BitSet filter(ProductFilters filters) {
+        BitSet matches = filterIndex.filter(filters.getIsActive(), filters.getIsInStock(),
+                filters.getBrand(), filters.getCategory());
+        if (filters.getMinPrice() != null || filters.getMaxPrice() != null) {
+            matches.and(priceIndex.range(filters.getMinPrice(), filters.getMaxPrice()));
+        }
+        if (!StringUtils.isBlank(filters.getName())) {
+            matches.and(searchIndex.matches(ProductSearchIndex.Field.NAME, filters.getName()));
+        }
+        if (!StringUtils.isBlank(filters.getSku())) {
+            matches.and(searchIndex.matches(ProductSearchIndex.Field.SKU, filters.getSku()));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns a page of the matching products ordered by id or by price, in the requested direction.
+     * <p>
+     * Both offset and keyset pagination are supported, with the same page layout and cursors
+     * as the database queries; the sort column of the filters must be the id or the price.
+     * Price-ordered pages walk the ranks of the {@link ProductPriceIndex} between the price
+     * bounds of the filters, with the id as tie-breaker, testing each rank against the bitmap.
+     * A page thus costs the ranks walked to reach and fill it, up to the whole price range when
+     * few products match; id-ordered pages skip 64 non-matching products per bitmap word. Offset
+     * pages also walk the matches they skip, so deep pages are cheaper with keyset cursors.
+     * </p>
+     *
+     * @param matches the positions of the matching products, as returned by {@link #filter(ProductFilters)}
+     * @param filters the filters carrying page, page size, sort, price bounds and the optional cursor
+     * @return the requested page
+     */
+    public Paginated<ProductReadOnlyDTO> getFilteredPage(BitSet matches, ProductFilters filters) {
+        boolean ascending = filters.getSortDirection().isAscending();
+        boolean byPrice = PRICE.equals(filters.getSortBy());
+        int pageSize = filters.getPageSize();
+        Ranks ranks = byPrice
+                ? new Ranks(matches, priceIndex::positionAt, priceIndex.fromRank(filters.getMinPrice()),
+                        priceIndex.toRank(filters.getMaxPrice()), false)
+                : new Ranks(matches, rank -> rank, 0, products.size(), true);
+
+        if (filters.isKeysetPaging()) {
+            KeysetCursor cursor = filters.getAfterCursor();
+            int start;
+            if (cursor == null) {
+                start = ascending ? ranks.from() : ranks.to() - 1;
+            } else if (byPrice) {
+                start = priceIndex.rankAfter(cursorPrice(cursor), cursor.id(), ascending);
+            } else {
+                start = positionAfter(cursor.id(), ascending);
+            }
+            List<ProductReadOnlyDTO> rows = collect(ranks, start, ascending, pageSize + 1);
+
+            boolean hasNext = rows.size() > pageSize;
+            List<ProductReadOnlyDTO> page = hasNext ? rows.subList(0, pageSize) : rows;
+            String nextCursor = hasNext
+                    ? KeysetCursor.after(page.get(page.size() - 1), filters.getSortBy(), filters.getSortDirection()).encode()
+                    : null;
+            long totalElements = Boolean.TRUE.equals(filters.getWithCount()) ? matches.cardinality() : -1;
+            return new Paginated<>(page, pageSize, nextCursor, totalElements);
+        }
+
+        Pageable pageable = filters.getPageable();
+        int rank = ascending ? ranks.from() : ranks.to() - 1;
+        for (long skipped = 0; skipped < pageable.getOffset() && rank >= 0; skipped++) {
+            int match = ranks.next(rank, ascending);
+            rank = match < 0 ? -1 : (ascending ? match + 1 : match - 1);
+        }
+        List<ProductReadOnlyDTO> page = rank < 0 ? List.of() : collect(ranks, rank, ascending, pageSize);
+        return new Paginated<>(new PageImpl<>(page, pageable, matches.cardinality()));
+    }
+
+    /**
+     * Returns the price a price-ordered cursor points after, ranking a missing price as 0 like
+     * the {@link ProductPriceIndex} does.
+     *
+     * @throws AppInvalidCursorException if the cursor carries no valid price
+     */
+    private static double cursorPrice(KeysetCursor cursor) {
+        if (cursor.value() == null) return 0;
+        try {
+            double price = Double.parseDouble(cursor.value());
+            if (Double.isFinite(price)) return price;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new AppInvalidCursorException("Invalid pagination cursor price: " + cursor.value());
+    }
+
+    /**
+     * Counts the matching products per brand, category and stock status, in the same form as
+     * the facet query of the database.
+     *
+     * @param matches the positions of the matching products
+     * @return one row per brand, category and stock status combination that has products
+     */
+    public List<ProductFacetCount> facetCounts(BitSet matches) {
+        record Key(String brandName, String categoryName, boolean inStock) {
+        }
+        Map<Key, Long> counts = new HashMap<>();
+        for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1)) {
+            ProductReadOnlyDTO product = products.get(position);
+            counts.merge(new Key(product.getBrand() == null ? null : product.getBrand().getBrandName(),
+                    product.getCategory() == null ? null : product.getCategory().getCategoryName(),
+                    Boolean.TRUE.equals(product.getInStock())), 1L, Long::sum);
+        }
+        List<ProductFacetCount> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> rows.add(new ProductFacetCount(key.brandName(), key.categoryName(), key.inStock(), count)));
+        return rows;
+    }
+
+    private List<ProductReadOnlyDTO> collect(Ranks ranks, int start, boolean ascending, int limit) {
+        List<ProductReadOnlyDTO> rows = new ArrayList<>(limit);
+        int rank = start;
+        while (rows.size() < limit) {
+            rank = ranks.next(rank, ascending);
+            if (rank < 0) break;
+            rows.add(products.get(ranks.positionAt().applyAsInt(rank)));
+            rank = ascending ? rank + 1 : rank - 1;
+        }
+        return rows;
+    }
+
+    /**
+     * The ranks {@code [from, to)} of a sort order, mapped to snapshot positions. When the
+     * order is the id order itself, ranks and positions coincide and the bitmap is searched
+     * directly for the next set bit; otherwise every rank is tested in turn.
+     */
+    private record Ranks(BitSet matches, IntUnaryOperator positionAt, int from, int to, boolean identity) {
+
+        /**
+         * Returns the first rank at or after {@code rank} in the given direction whose product matches, or -1.
+         */
+        int next(int rank, boolean ascending) {
+            int current = ascending ? Math.max(rank, from) : Math.min(rank, to - 1);
+            if (identity) {
+                int position = ascending ? matches.nextSetBit(current) : (current < 0 ? -1 : matches.previousSetBit(current));
+                return position >= from && position < to ? position : -1;
+            }
+            for (; current >= from && current < to; current += ascending ? 1 : -1) {
+                if (matches.get(positionAt.applyAsInt(current))) return current;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the position of the first product after the given id in the given direction.
+     */
+    private int positionAfter(long id, boolean ascending) {
+        int found = Arrays.binarySearch(ids, id);
+        int insertion = found >= 0 ? found : -found - 1;
+        if (ascending) return found >= 0 ? found + 1 : insertion;
+        return insertion - 1;
+    }
+}
@@ -0,0 +1,26 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published by the services whenever products are created, updated, deleted
+ * or their stock changes. The {@link ProductCatalog} reloads the given ids
+ * once the publishing transaction has committed.
+ *
+ * @param productIds the ids of the products that changed
+ */
+public record ProductChangedEvent(Set<Long> productIds) {
+
+    public ProductChangedEvent {
+        productIds = Set.copyOf(productIds);
+    }
+
+    public static ProductChangedEvent of(Long productId) {
+        return new ProductChangedEvent(Set.of(productId));
+    }
+
+    public static ProductChangedEvent of(Collection<Long> productIds) {
+        return new ProductChangedEvent(Set.copyOf(productIds));
+    }
+}
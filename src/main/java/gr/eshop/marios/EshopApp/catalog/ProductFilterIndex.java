@@ -0,0 +1,165 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable bitmap index over the low-cardinality filters of the products of a
+ * {@link ProductCatalogSnapshot}: brand, category, active flag and stock flag.
+ * <p>
+ * Bit {@code i} of every bitmap stands for the product at position {@code i} of the snapshot,
+ * which is ordered by id. A combination of filters is answered by AND-ing one bitmap per
+ * filter, a few machine words per 64 products, and the result is paged by walking its set
+ * bits, so the id order of the snapshot doubles as the sort order.
+ * </p>
+ * <p>
+ * Brand and category names are compared the way the accent- and case-insensitive collation of
+ * the database compares them in {@link gr.eshop.marios.EshopApp.core.specifications.ProductSpecification},
+ * so "apple" and "Äpple" both match the brand "Apple"; unlike the collation, runs of whitespace
+ * are folded too. A product whose flag is null matches neither {@code true} nor {@code false}.
+ * </p>
+ * <p>
+ * When products change in place, {@link #withChanges(List, Map)} copies only the bitmaps whose
+ * members changed and shares the others with this index.
+ * </p>
+ */
+public final class ProductFilterIndex {
+
+    private static final TextNormalizer COLLATION = new TextNormalizer(false);
+
+    private static final Function<ProductReadOnlyDTO, Boolean> ACTIVE = ProductReadOnlyDTO::getIsActive;
+    private static final Function<ProductReadOnlyDTO, Boolean> IN_STOCK = ProductReadOnlyDTO::getInStock;
+    private static final Function<ProductReadOnlyDTO, String> BRAND =
+            product -> product.getBrand() == null ? null : collationKey(product.getBrand().getBrandName());
+    private static final Function<ProductReadOnlyDTO, String> CATEGORY =
+            product -> product.getCategory() == null ? null : collationKey(product.getCategory().getCategoryName());
+
+    private final int size;
+    private final Map<Boolean, BitSet> byActive;
+    private final Map<Boolean, BitSet> byInStock;
+    private final Map<String, BitSet> byBrand;
+    private final Map<String, BitSet> byCategory;
+
+    /**
+     * Builds the index.
+     *
+     * @param products the products, in the order the bits follow
+     */
+    public ProductFilterIndex(List<ProductReadOnlyDTO> products) {
+        this.size = products.size();
+        this.byActive = bitmaps(products, ACTIVE);
+        this.byInStock = bitmaps(products, IN_STOCK);
+        this.byBrand = bitmaps(products, BRAND);
+        this.byCategory = bitmaps(products, CATEGORY);
+    }
+
+    private ProductFilterIndex(int size, Map<Boolean, BitSet> byActive, Map<Boolean, BitSet> byInStock,
+                               Map<String, BitSet> byBrand, Map<String, BitSet> byCategory) {
+        this.size = size;
+        this.byActive = byActive;
+        this.byInStock = byInStock;
+        this.byBrand = byBrand;
+        this.byCategory = byCategory;
+    }
+
+    /**
+     * Derives the index of the same products after some of them changed in place.
+     *
+     * @param before  the products this index was built from
+     * @param changes the changed products by position; the positions of the others stay the same
+     * @return the new index, this index being left untouched
+     */
+    public ProductFilterIndex withChanges(List<ProductReadOnlyDTO> before, Map<Integer, ProductReadOnlyDTO> changes) {
+        return new ProductFilterIndex(size,
+                patch(byActive, before, changes, ACTIVE),
+                patch(byInStock, before, changes, IN_STOCK),
+                patch(byBrand, before, changes, BRAND),
+                patch(byCategory, before, changes, CATEGORY));
+    }
+
+    /**
+     * Finds the positions of the products matching all the given filters; a null filter
+     * matches every product.
+     *
+     * @param isActive  the active status
+     * @param isInStock the stock availability
+     * @param brand     the brand name
+     * @param category  the category name
+     * @return a new bitmap with the positions of the matching products
+     */
+    public BitSet filter(Boolean isActive, Boolean isInStock, String brand, String category) {
+        BitSet matches = new BitSet(size);
+        matches.set(0, size);
+        and(matches, byActive, isActive);
+        and(matches, byInStock, isInStock);
+        and(matches, byBrand, collationKey(brand));
+        and(matches, byCategory, collationKey(category));
+        return matches;
+    }
+
+    private static String collationKey(String name) {
+        return name == null ? null : COLLATION.normalize(name);
+    }
+
+    private static <K> void and(BitSet matches, Map<K, BitSet> bitmaps, K key) {
+        if (key == null) return;
+        BitSet bitmap = bitmaps.get(key);
+        if (bitmap == null) {
+            matches.clear();
+        } else {
+            matches.and(bitmap);
+        }
+    }
+
+    private <K> Map<K, BitSet> patch(Map<K, BitSet> bitmaps, List<ProductReadOnlyDTO> before,
+                                     Map<Integer, ProductReadOnlyDTO> changes, Function<ProductReadOnlyDTO, K> key) {
+        Map<K, BitSet> patched = null;
+        Set<K> copied = new HashSet<>();
+        for (Map.Entry<Integer, ProductReadOnlyDTO> change : changes.entrySet()) {
+            K oldValue = key.apply(before.get(change.getKey()));
+            K newValue = key.apply(change.getValue());
+            if (Objects.equals(oldValue, newValue)) continue;
+
+            if (patched == null) patched = new HashMap<>(bitmaps);
+            if (oldValue != null) {
+                writable(patched, copied, oldValue).clear(change.getKey());
+            }
+            if (newValue != null) {
+                writable(patched, copied, newValue).set(change.getKey());
+            }
+        }
+        if (patched == null) return bitmaps;
+        patched.values().removeIf(BitSet::isEmpty);
+        return Map.copyOf(patched);
+    }
+
+    /**
+     * Returns the bitmap of a key that this patch may modify, copying the shared one first.
+     */
+    private <K> BitSet writable(Map<K, BitSet> bitmaps, Set<K> copied, K key) {
+        if (copied.add(key)) {
+            BitSet shared = bitmaps.get(key);
+            bitmaps.put(key, shared == null ? new BitSet(size) : (BitSet) shared.clone());
+        }
+        return bitmaps.get(key);
+    }
+
+    private static <K> Map<K, BitSet> bitmaps(List<ProductReadOnlyDTO> products, Function<ProductReadOnlyDTO, K> key) {
+        Map<K, BitSet> bitmaps = new HashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            K value = key.apply(products.get(i));
+            if (value != null) {
+                bitmaps.computeIfAbsent(value, k -> new BitSet(products.size())).set(i);
+            }
+        }
+        return Map.copyOf(bitmaps);
+    }
+}
@@ -0,0 +1,206 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable price index of the products of a {@link ProductCatalogSnapshot}.
+ * <p>
+ * The positions of the products are kept in three parallel primitive arrays sorted by
+ * {@code (price, id)}, the order of a price-sorted page with the id as tie-breaker. A price
+ * range is two binary searches away, {@code O(log n)}, and its {@code r} products are the
+ * contiguous ranks between them, so a range filter costs {@code O(log n + r)} and needs no sort.
+ * A price-ordered page walks the ranks from the start of the range, or from the cursor, and
+ * tests each against the other filters, so it costs {@code O(log n)} plus the ranks walked: the
+ * page itself, the ranks its offset skips and the ranks the other filters reject, which for a
+ * selective filter can be most of the range.
+ * </p>
+ * <p>
+ * When products change in place, {@link #withChanges(List, List, Collection)} keeps this index
+ * if no price changed, and otherwise merges the repriced products into the untouched ranks in
+ * {@code O(n + k log k)} rather than sorting the whole catalog again.
+ * </p>
+ */
+public final class ProductPriceIndex {
+
+    private final double[] prices;
+    private final long[] ids;
+    private final int[] positions;
+
+    /**
+     * Builds the index.
+     *
+     * @param products the products, ordered by id
+     */
+    public ProductPriceIndex(List<ProductReadOnlyDTO> products) {
+        this.positions = IntStream.range(0, products.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer position) -> price(products.get(position)))
+                        .thenComparingInt(position -> position))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.prices = new double[positions.length];
+        this.ids = new long[positions.length];
+        for (int rank = 0; rank < positions.length; rank++) {
+            prices[rank] = price(products.get(positions[rank]));
+            ids[rank] = products.get(positions[rank]).getId();
+        }
+    }
+
+    private ProductPriceIndex(double[] prices, long[] ids, int[] positions) {
+        this.prices = prices;
+        this.ids = ids;
+        this.positions = positions;
+    }
+
+    /**
+     * Derives the index of the same products after some of them changed in place.
+     *
+     * @param before  the products this index was built from, ordered by id
+     * @param after   the products after the change, at the same positions
+     * @param changed the positions of the changed products
+     * @return the new index, or this index if no price changed
+     */
+    public ProductPriceIndex withChanges(List<ProductReadOnlyDTO> before, List<ProductReadOnlyDTO> after,
+                                         Collection<Integer> changed) {
+        BitSet moved = new BitSet(positions.length);
+        for (int position : changed) {
+            if (Double.compare(price(before.get(position)), price(after.get(position))) != 0) {
+                moved.set(position);
+            }
+        }
+        if (moved.isEmpty()) return this;
+
+        int[] movedPositions = moved.stream()
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer position) -> price(after.get(position)))
+                        .thenComparingInt(position -> position))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        double[] nextPrices = new double[positions.length];
+        long[] nextIds = new long[positions.length];
+        int[] nextPositions = new int[positions.length];
+        int next = 0;
+        int m = 0;
+        for (int rank = 0; rank < positions.length; rank++) {
+            if (moved.get(positions[rank])) continue;
+            while (m < movedPositions.length && precedes(after, movedPositions[m], prices[rank], positions[rank])) {
+                next = put(after, movedPositions[m++], nextPrices, nextIds, nextPositions, next);
+            }
+            nextPrices[next] = prices[rank];
+            nextIds[next] = ids[rank];
+            nextPositions[next++] = positions[rank];
+        }
+        while (m < movedPositions.length) {
+            next = put(after, movedPositions[m++], nextPrices, nextIds, nextPositions, next);
+        }
+        return new ProductPriceIndex(nextPrices, nextIds, nextPositions);
+    }
+
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * @param rank the rank in {@code (price, id)} order
+     * @return the position in the snapshot of the product at that rank
+     */
+    public int positionAt(int rank) {
+        return positions[rank];
+    }
+
+    /**
+     * Returns the first rank whose price is at least {@code minPrice}.
+     *
+     * @param minPrice the inclusive lower bound, null for no bound
+     * @return the first rank of the range
+     */
+    public int fromRank(Double minPrice) {
+        if (minPrice == null) return 0;
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] < minPrice) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the rank after the last one whose price is at most {@code maxPrice}.
+     *
+     * @param maxPrice the inclusive upper bound, null for no bound
+     * @return the exclusive end rank of the range
+     */
+    public int toRank(Double maxPrice) {
+        if (maxPrice == null) return prices.length;
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] <= maxPrice) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Finds the positions of the products priced within the given bounds.
+     *
+     * @param minPrice the inclusive lower bound, null for no bound
+     * @param maxPrice the inclusive upper bound, null for no bound
+     * @return a new bitmap with the positions of the products in the range
+     */
+    public BitSet range(Double minPrice, Double maxPrice) {
+        BitSet matches = new BitSet(positions.length);
+        for (int rank = fromRank(minPrice), to = toRank(maxPrice); rank < to; rank++) {
+            matches.set(positions[rank]);
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the rank of the first product after the given {@code (price, id)} in the given direction.
+     *
+     * @param price     the price of the last product of the previous page
+     * @param id        the id of the last product of the previous page
+     * @param ascending the direction of the page
+     * @return the rank to continue from, possibly -1 or {@link #size()} when nothing follows
+     */
+    public int rankAfter(double price, long id, boolean ascending) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int compare = prices[mid] != price ? Double.compare(prices[mid], price) : Long.compare(ids[mid], id);
+            if (compare <= 0) low = mid + 1;
+            else high = mid;
+        }
+        // low is now the first rank greater than (price, id)
+        if (ascending) return low;
+        return low > 0 && prices[low - 1] == price && ids[low - 1] == id ? low - 2 : low - 1;
+    }
+
+    private static boolean precedes(List<ProductReadOnlyDTO> products, int position, double price, int otherPosition) {
+        int compare = Double.compare(price(products.get(position)), price);
+        return compare < 0 || compare == 0 && position < otherPosition;
+    }
+
+    private static int put(List<ProductReadOnlyDTO> products, int position,
+                           double[] prices, long[] ids, int[] positions, int rank) {
+        prices[rank] = price(products.get(position));
+        ids[rank] = products.get(position).getId();
+        positions[rank] = position;
+        return rank + 1;
+    }
+
+    private static double price(ProductReadOnlyDTO product) {
+        return product.getPrice() == null ? 0 : product.getPrice();
+    }
+}
@@ -0,0 +1,10 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+/**
+ * The units of a product sold so far, used to rank suggestions.
+ *
+ * @param sku  the SKU of the product
+ * @param sold the total ordered quantity
+ */
+public record ProductSales(String sku, Long sold) {
+}
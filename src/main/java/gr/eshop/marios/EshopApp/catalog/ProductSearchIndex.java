@@ -0,0 +1,175 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Immutable inverted index over the name, sku, brand and category of the products of a
+ * {@link ProductCatalogSnapshot}.
+ * <p>
+ * Every field is normalized with the {@link TextNormalizer} and cut into trigrams; each
+ * trigram maps to the sorted positions of the products containing it. A query matches a
+ * product when the normalized field contains the normalized query, i.e. the same substring
+ * semantics as {@code LIKE '%x%'}: the posting lists of the query's trigrams are intersected
+ * and the few remaining candidates are checked with {@link String#contains}. Queries shorter
+ * than a trigram scan the normalized fields, which are kept in memory anyway.
+ * </p>
+ */
+public final class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+
+    public enum Field {
+        NAME(ProductReadOnlyDTO::getName),
+        SKU(ProductReadOnlyDTO::getSku),
+        BRAND(product -> product.getBrand() == null ? null : product.getBrand().getBrandName()),
+        CATEGORY(product -> product.getCategory() == null ? null : product.getCategory().getCategoryName());
+
+        private final Function<ProductReadOnlyDTO, String> value;
+
+        Field(Function<ProductReadOnlyDTO, String> value) {
+            this.value = value;
+        }
+    }
+
+    private final TextNormalizer normalizer;
+    private final List<ProductReadOnlyDTO> products;
+    private final Map<Field, String[]> texts;
+    private final Map<Field, Map<String, int[]>> postings;
+
+    /**
+     * Builds the index.
+     *
+     * @param products   the products, in the order the search results should follow
+     * @param normalizer the normalizer applied to the fields and to the queries
+     */
+    public ProductSearchIndex(List<ProductReadOnlyDTO> products, TextNormalizer normalizer) {
+        this.normalizer = normalizer;
+        this.products = products;
+        this.texts = new EnumMap<>(Field.class);
+        this.postings = new EnumMap<>(Field.class);
+
+        for (Field field : Field.values()) {
+            String[] fieldTexts = new String[products.size()];
+            Map<String, List<Integer>> positions = new HashMap<>();
+            for (int i = 0; i < products.size(); i++) {
+                fieldTexts[i] = normalizer.normalize(field.value.apply(products.get(i)));
+                for (String gram : grams(fieldTexts[i])) {
+                    positions.computeIfAbsent(gram, key -> new ArrayList<>()).add(i);
+                }
+            }
+
+            Map<String, int[]> fieldPostings = new HashMap<>(positions.size() * 2);
+            positions.forEach((gram, list) -> fieldPostings.put(gram, list.stream().mapToInt(Integer::intValue).toArray()));
+            texts.put(field, fieldTexts);
+            postings.put(field, fieldPostings);
+        }
+    }
+
+    private ProductSearchIndex(TextNormalizer normalizer, List<ProductReadOnlyDTO> products,
+                               Map<Field, String[]> texts, Map<Field, Map<String, int[]>> postings) {
+        this.normalizer = normalizer;
+        this.products = products;
+        this.texts = texts;
+        this.postings = postings;
+    }
+
+    /**
+     * Derives the index of the same products after some of them changed in place. The trigrams
+     * are shared with this index when none of the searched fields changed, and rebuilt otherwise.
+     *
+     * @param after   the products after the change, at the same positions
+     * @param changed the positions of the changed products
+     * @return the new index, this index being left untouched
+     */
+    public ProductSearchIndex withChanges(List<ProductReadOnlyDTO> after, Collection<Integer> changed) {
+        for (int position : changed) {
+            for (Field field : Field.values()) {
+                if (!texts.get(field)[position].equals(normalizer.normalize(field.value.apply(after.get(position))))) {
+                    return new ProductSearchIndex(after, normalizer);
+                }
+            }
+        }
+        return new ProductSearchIndex(normalizer, after, texts, postings);
+    }
+
+    /**
+     * Finds the products whose field contains the query, ignoring case, accents and Greeklish.
+     *
+     * @param field the field to search
+     * @param query the text to look for
+     * @return the matching products, in index order
+     */
+    public List<ProductReadOnlyDTO> search(Field field, String query) {
+        BitSet matches = matches(field, query);
+        List<ProductReadOnlyDTO> result = new ArrayList<>(matches.cardinality());
+        for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1)) {
+            result.add(products.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the positions of the products whose field contains the query, so the result can
+     * be combined with the bitmaps of a {@link ProductFilterIndex}.
+     *
+     * @param field the field to search
+     * @param query the text to look for
+     * @return a new bitmap with the positions of the matching products
+     */
+    public BitSet matches(Field field, String query) {
+        String normalized = normalizer.normalize(query);
+        String[] fieldTexts = texts.get(field);
+        BitSet matches = new BitSet(fieldTexts.length);
+
+        if (normalized.length() < GRAM) {
+            for (int i = 0; i < fieldTexts.length; i++) {
+                if (fieldTexts[i].contains(normalized)) matches.set(i);
+            }
+            return matches;
+        }
+
+        for (int position : candidates(postings.get(field), normalized)) {
+            if (fieldTexts[position].contains(normalized)) matches.set(position);
+        }
+        return matches;
+    }
+
+    private static int[] candidates(Map<String, int[]> fieldPostings, String normalized) {
+        List<int[]> lists = new ArrayList<>();
+        for (String gram : grams(normalized)) {
+            int[] list = fieldPostings.get(gram);
+            if (list == null) return new int[0];
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] smaller, int[] larger) {
+        int[] result = new int[smaller.length];
+        int size = 0;
+        int j = 0;
+        for (int value : smaller) {
+            while (j < larger.length && larger[j] < value) j++;
+            if (j == larger.length) break;
+            if (larger[j] == value) result[size++] = value;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,191 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+
+import java.util.*;
+
+/**
+ * Immutable compressed (radix) trie of the product names, SKUs, brands and categories
+ * of the active products of a {@link ProductCatalogSnapshot}, used for search-box autocompletion.
+ * <p>
+ * Terms are normalized with the {@link TextNormalizer}, and every word of a term is a
+ * starting point, so "gam" completes "Laptop Gaming". Each node stores the
+ * {@link #MAX_SUGGESTIONS} most popular suggestions below it, computed once when the trie
+ * is built: a lookup only walks the characters of the prefix and copies that list, however
+ * many products share the prefix. A text shared by several products, or by a product and a
+ * brand, is suggested once, as its most popular suggestion.
+ * </p>
+ */
+public final class SuggestionTrie {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Comparator<Suggestion> BY_POPULARITY = Comparator
+            .comparingLong(Suggestion::popularity).reversed()
+            .thenComparing(Suggestion::text);
+
+    public enum Kind { NAME, SKU, BRAND, CATEGORY }
+
+    /**
+     * A completion offered for a prefix.
+     *
+     * @param text        the text as shown to the user
+     * @param kind        what the text is
+     * @param productUuid the uuid of the product for names and SKUs, null for brands and categories
+     * @param popularity  the units sold of the product, or of all the products of the brand or category
+     */
+    public record Suggestion(String text, Kind kind, String productUuid, long popularity) {
+    }
+
+    private record Term(String key, Suggestion suggestion) {
+    }
+
+    private static final class Node {
+        private final String label;
+        private final Node[] children;
+        private final Suggestion[] top;
+
+        private Node(String label, Node[] children, Suggestion[] top) {
+            this.label = label;
+            this.children = children;
+            this.top = top;
+        }
+
+        private Node child(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) low = mid + 1;
+                else if (c > first) high = mid - 1;
+                else return children[mid];
+            }
+            return null;
+        }
+    }
+
+    private final TextNormalizer normalizer;
+    private final Node root;
+
+    /**
+     * Builds the trie.
+     *
+     * @param products   the products of the catalog; inactive ones are left out
+     * @param salesBySku the units sold per SKU
+     * @param normalizer the normalizer applied to the terms and to the prefixes
+     */
+    public SuggestionTrie(Collection<ProductReadOnlyDTO> products, Map<String, Long> salesBySku, TextNormalizer normalizer) {
+        this.normalizer = normalizer;
+
+        Map<String, Long> brandSales = new HashMap<>();
+        Map<String, Long> categorySales = new HashMap<>();
+        List<Term> terms = new ArrayList<>();
+        for (ProductReadOnlyDTO product : products) {
+            if (!Boolean.TRUE.equals(product.getIsActive())) continue;
+            long sold = salesBySku.getOrDefault(product.getSku(), 0L);
+            addTerms(terms, product.getName(), new Suggestion(product.getName(), Kind.NAME, product.getUuid(), sold));
+            addTerms(terms, product.getSku(), new Suggestion(product.getSku(), Kind.SKU, product.getUuid(), sold));
+            if (product.getBrand() != null && product.getBrand().getBrandName() != null) {
+                brandSales.merge(product.getBrand().getBrandName(), sold, Long::sum);
+            }
+            if (product.getCategory() != null && product.getCategory().getCategoryName() != null) {
+                categorySales.merge(product.getCategory().getCategoryName(), sold, Long::sum);
+            }
+        }
+        brandSales.forEach((brand, sold) -> addTerms(terms, brand, new Suggestion(brand, Kind.BRAND, null, sold)));
+        categorySales.forEach((category, sold) -> addTerms(terms, category, new Suggestion(category, Kind.CATEGORY, null, sold)));
+
+        terms.sort(Comparator.comparing(Term::key));
+        Node[] children = children(terms, 0, terms.size(), 0);
+        this.root = new Node("", children, top(terms, 0, terms.size(), 0, children));
+    }
+
+    /**
+     * Returns the most popular completions of the given prefix.
+     *
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions, at most {@link #MAX_SUGGESTIONS}
+     * @return the suggestions, most popular first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalizer.normalize(prefix);
+        if (key.isEmpty() || limit <= 0) return List.of();
+
+        Node node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            node = node.child(key.charAt(matched));
+            if (node == null) return List.of();
+            int common = commonPrefix(node.label, 0, key, matched);
+            if (matched + common == key.length()) break;
+            if (common < node.label.length()) return List.of();
+            matched += common;
+        }
+        return List.of(node.top).subList(0, Math.min(limit, node.top.length));
+    }
+
+    private void addTerms(List<Term> terms, String text, Suggestion suggestion) {
+        String key = normalizer.normalize(text);
+        for (int start = 0; start < key.length(); start++) {
+            if (start == 0 || key.charAt(start - 1) == ' ') {
+                terms.add(new Term(key.substring(start), suggestion));
+            }
+        }
+    }
+
+    /**
+     * Builds the children of a node from the sorted terms in {@code [from, to)}, which all
+     * share their first {@code depth} characters and are longer than that.
+     */
+    private static Node[] children(List<Term> terms, int from, int to, int depth) {
+        List<Node> nodes = new ArrayList<>();
+        int start = from;
+        while (start < to) {
+            if (terms.get(start).key().length() <= depth) {
+                start++;
+                continue;
+            }
+            char first = terms.get(start).key().charAt(depth);
+            int end = start + 1;
+            while (end < to && terms.get(end).key().charAt(depth) == first) end++;
+
+            String firstKey = terms.get(start).key();
+            String lastKey = terms.get(end - 1).key();
+            int labelEnd = depth + commonPrefix(firstKey, depth, lastKey, depth);
+            Node[] grandChildren = children(terms, start, end, labelEnd);
+            nodes.add(new Node(firstKey.substring(depth, labelEnd), grandChildren, top(terms, start, end, labelEnd, grandChildren)));
+            start = end;
+        }
+        return nodes.toArray(new Node[0]);
+    }
+
+    /**
+     * Collects the top suggestions of a node: those of the terms ending exactly at it, which
+     * sort first in {@code [from, to)}, merged with the top suggestions of its children and
+     * keeping the most popular suggestion of each text.
+     */
+    private static Suggestion[] top(List<Term> terms, int from, int to, int depth, Node[] children) {
+        Set<Suggestion> candidates = new HashSet<>();
+        for (int i = from; i < to && terms.get(i).key().length() == depth; i++) {
+            candidates.add(terms.get(i).suggestion());
+        }
+        for (Node child : children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        Map<String, Suggestion> byText = new LinkedHashMap<>();
+        candidates.stream()
+                .sorted(BY_POPULARITY)
+                .forEach(suggestion -> byText.putIfAbsent(suggestion.text(), suggestion));
+        return byText.values().stream()
+                .limit(MAX_SUGGESTIONS)
+                .toArray(Suggestion[]::new);
+    }
+
+    private static int commonPrefix(String a, int aFrom, String b, int bFrom) {
+        int length = Math.min(a.length() - aFrom, b.length() - bFrom);
+        int i = 0;
+        while (i < length && a.charAt(aFrom + i) == b.charAt(bFrom + i)) i++;
+        return i;
+    }
+}
@@ -0,0 +1,69 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+
+/**
+ * Normalizes text for the product search index, so that searching ignores case, accents
+ * and, optionally, whether Greek words were typed in Greek or in Greeklish.
+ * <p>
+ * The text is decomposed (NFD), diacritics such as the Greek tonos and dialytika are
+ * dropped, it is case folded, the final sigma is folded into sigma and runs of whitespace
+ * become one space. With Greeklish enabled ({@code eshop.catalog.search.greeklish}, on by
+ * default) every Greek letter is then transliterated to Latin, so "Λάπτοπ", "λαπτοπ" and
+ * "laptop" all normalize to "laptop".
+ * </p>
+ */
+@Component
+public class TextNormalizer {
+
+    private static final String[] GREEKLISH = {
+            "a", "v", "g", "d", "e", "z", "i", "th", "i", "k", "l", "m", "n", "x", "o", "p", "r", "s", "s",
+            "t", "y", "f", "ch", "ps", "o"
+    };
+
+    private final boolean greeklish;
+
+    public TextNormalizer(@Value("${eshop.catalog.search.greeklish:true}") boolean greeklish) {
+        this.greeklish = greeklish;
+    }
+
+    /**
+     * Normalizes the given text.
+     *
+     * @param text the text, may be null
+     * @return the normalized text, empty if the text was null or blank
+     */
+    public String normalize(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < decomposed.length(); ) {
+            int codePoint = decomposed.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (Character.getType(codePoint) == Character.NON_SPACING_MARK) continue;
+            if (Character.isWhitespace(codePoint)) {
+                pendingSpace = !normalized.isEmpty();
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+
+            codePoint = Character.toLowerCase(Character.toUpperCase(codePoint));
+            if (codePoint == 'ς') codePoint = 'σ';
+            if (greeklish && codePoint >= 'α' && codePoint <= 'ω') {
+                normalized.append(GREEKLISH[codePoint - 'α']);
+            } else {
+                normalized.appendCodePoint(codePoint);
+            }
+        }
+        return normalized.toString();
+    }
+}
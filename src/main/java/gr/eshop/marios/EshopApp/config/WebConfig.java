@@ -1,23 +0,0 @@
-package gr.eshop.marios.EshopApp.config;
-
-
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-
-@Configuration
-public class WebConfig implements WebMvcConfigurer {
-
-    /**
-     * Configures resource handlers for serving static resources.
-     *
-     * @param registry the ResourceHandlerRegistry to configure
-     */
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/"); // Relative to project root
-
-
-    }
-}
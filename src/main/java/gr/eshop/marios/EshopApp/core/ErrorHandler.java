@@ -3,6 +3,7 @@ package gr.eshop.marios.EshopApp.core;
 
 import gr.eshop.marios.EshopApp.core.exceptions.*;
 import gr.eshop.marios.EshopApp.dto.ResponseMessageDTO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -90,4 +91,28 @@ public class ErrorHandler extends ResponseEntityExceptionHandler {
     public ResponseEntity<ResponseMessageDTO> handleConstraintViolationException(AppServerException e) {
         return new ResponseEntity<>(new ResponseMessageDTO(e.getCode(), e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
     }
-}
\ No newline at end of file
+
+    /**
+     * Handles invalid keyset pagination cursors.
+     *
+     * @param e the AppInvalidCursorException containing the error details
+     * @return a ResponseEntity containing a ResponseMessageDTO and a BAD_REQUEST status
+     */
+    @ExceptionHandler({AppInvalidCursorException.class})
+    public ResponseEntity<ResponseMessageDTO> handleInvalidCursorException(AppInvalidCursorException e) {
+        return new ResponseEntity<>(new ResponseMessageDTO(e.getCode(), e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles requests rejected by a rate limit or a saturated worker pool.
+     *
+     * @param e the AppTooManyRequestsException containing the error details
+     * @return a ResponseEntity containing a ResponseMessageDTO, a Retry-After header and a TOO_MANY_REQUESTS status
+     */
+    @ExceptionHandler({AppTooManyRequestsException.class})
+    public ResponseEntity<ResponseMessageDTO> handleTooManyRequestsException(AppTooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ResponseMessageDTO(e.getCode(), e.getMessage()));
+    }
+}
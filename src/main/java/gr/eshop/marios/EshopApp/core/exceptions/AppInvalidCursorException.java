@@ -0,0 +1,18 @@
+package gr.eshop.marios.EshopApp.core.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a keyset pagination cursor is malformed or does not match the requested sort.
+ * Unchecked, since cursors are decoded while building the query from the filters.
+ */
+@Getter
+public class AppInvalidCursorException extends RuntimeException {
+    private static final String DEFAULT_CODE = "InvalidCursor";
+    private final String code;
+
+    public AppInvalidCursorException(String message) {
+        super(message);
+        this.code = DEFAULT_CODE;
+    }
+}
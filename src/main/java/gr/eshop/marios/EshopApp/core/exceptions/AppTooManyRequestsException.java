@@ -0,0 +1,15 @@
+package gr.eshop.marios.EshopApp.core.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class AppTooManyRequestsException extends AppGenericException {
+
+    private static final String DEFAULT_CODE = "TooManyRequests";
+    private final long retryAfterSeconds;
+
+    public AppTooManyRequestsException(String code, String message, long retryAfterSeconds) {
+        super(code + DEFAULT_CODE, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Setter;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 
 @Getter
 @Setter
@@ -19,6 +20,21 @@ public abstract class GenericFilters {
     private Sort.Direction sortDirection;
     private String sortBy;
 
+    /**
+     * Opaque cursor returned as {@link Paginated#getNextCursor()}. When present the
+     * page is fetched with keyset pagination and {@link #page} is ignored.
+     */
+    @Nullable
+    private String after;
+
+    /** Requests keyset pagination for the first page, when there is no cursor yet. */
+    @Nullable
+    private Boolean keyset;
+
+    /** Whether a keyset page should also report the total count. Defaults to false. */
+    @Nullable
+    private Boolean withCount;
+
     public int getPageSize() {
         return pageSize <= 0 ? DEFAULT_PAGE_SIZE : pageSize;
     }
@@ -44,4 +60,30 @@ public abstract class GenericFilters {
     public Sort getSort(){
         return Sort.by(this.getSortDirection(), this.getSortBy());
     }
+
+    public boolean isKeysetPaging() {
+        return Boolean.TRUE.equals(this.keyset) || !StringUtils.isBlank(this.after);
+    }
+
+    /**
+     * Decodes the "after" cursor and checks that it matches the requested sort.
+     *
+     * @return the cursor, or null when fetching the first page
+     */
+    public KeysetCursor getAfterCursor() {
+        if (StringUtils.isBlank(this.after)) return null;
+        KeysetCursor cursor = KeysetCursor.decode(this.after);
+        cursor.requireSort(this.getSortBy(), this.getSortDirection());
+        return cursor;
+    }
+
+    /**
+     * Returns the sort used by keyset pagination: the requested column with the id as tie-breaker.
+     *
+     * @return the keyset sort
+     */
+    public Sort getKeysetSort() {
+        if (DEFAULT_SORT_COLUMN.equals(this.getSortBy())) return getSort();
+        return getSort().and(Sort.by(this.getSortDirection(), DEFAULT_SORT_COLUMN));
+    }
 }
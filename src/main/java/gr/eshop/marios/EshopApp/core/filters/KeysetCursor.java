@@ -0,0 +1,84 @@
+package gr.eshop.marios.EshopApp.core.filters;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppInvalidCursorException;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque "after" cursor used by keyset (seek) pagination.
+ * <p>
+ * A cursor remembers the sort column, the sort direction and the position of the last row
+ * of a page, i.e. its sort value and its id. It is handed to the client as a URL-safe
+ * Base64 string and sent back as {@link GenericFilters#getAfter()} to fetch the next page.
+ * </p>
+ *
+ * @param sortBy    the sort column the cursor was created for
+ * @param direction the sort direction the cursor was created for
+ * @param value     the sort value of the last row, {@code null} if the column was null
+ * @param id        the id of the last row
+ */
+public record KeysetCursor(String sortBy, Sort.Direction direction, String value, Long id) {
+
+    private static final String SEPARATOR = "\u001F";
+    private static final String NULL_VALUE = "\u0000";
+
+    /**
+     * Creates the cursor pointing after the given entity.
+     *
+     * @param entity    the last entity of the page
+     * @param sortBy    the sort column
+     * @param direction the sort direction
+     * @return the cursor
+     * @throws AppInvalidCursorException if the entity has no such sort column
+     */
+    public static KeysetCursor after(Object entity, String sortBy, Sort.Direction direction) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(entity);
+        if (!wrapper.isReadableProperty(sortBy)) {
+            throw new AppInvalidCursorException("Cannot page by " + sortBy);
+        }
+        Object value = wrapper.getPropertyValue(sortBy);
+        Object id = wrapper.getPropertyValue("id");
+        return new KeysetCursor(sortBy, direction, value == null ? null : value.toString(),
+                ((Number) id).longValue());
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     *
+     * @param cursor the opaque cursor string
+     * @return the decoded cursor
+     * @throws AppInvalidCursorException if the cursor is malformed
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 4);
+            String value = NULL_VALUE.equals(parts[3]) ? null : parts[3];
+            return new KeysetCursor(parts[0], Sort.Direction.fromString(parts[1]), value, Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new AppInvalidCursorException("Invalid pagination cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, sortBy, direction.name(), id.toString(), value == null ? NULL_VALUE : value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks that the cursor was created for the given sort column and direction.
+     *
+     * @param sortBy    the requested sort column
+     * @param direction the requested sort direction
+     * @throws AppInvalidCursorException if the cursor belongs to a different sort order
+     */
+    public void requireSort(String sortBy, Sort.Direction direction) {
+        if (!this.sortBy.equals(sortBy) || this.direction != direction) {
+            throw new AppInvalidCursorException("Pagination cursor was created for sort " + this.sortBy + " "
+                    + this.direction + " but the request sorts by " + sortBy + " " + direction);
+        }
+    }
+}
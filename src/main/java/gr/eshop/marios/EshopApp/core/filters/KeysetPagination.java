@@ -0,0 +1,79 @@
+package gr.eshop.marios.EshopApp.core.filters;
+
+import gr.eshop.marios.EshopApp.core.specifications.KeysetSpecification;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Runs keyset (seek) paginated queries for any repository with specification support.
+ * <p>
+ * Instead of {@code OFFSET n} the page is located with a predicate on {@code (sortBy, id)}
+ * taken from the cursor, so a deep page costs the same as the first one. One extra row is
+ * fetched to know whether a next page exists, and the {@code COUNT(*)} query only runs when
+ * the client asked for it with {@link GenericFilters#getWithCount()}.
+ * </p>
+ */
+public class KeysetPagination {
+
+    private KeysetPagination() {
+
+    }
+
+    /**
+     * Fetches the page positioned after the cursor of the given filters.
+     *
+     * @param repository the repository to query
+     * @param spec       the filtering specification
+     * @param filters    the filters carrying page size, sort and the optional cursor
+     * @param mapper     the entity to DTO mapping
+     * @param <E>        the entity type
+     * @param <T>        the DTO type
+     * @return a {@link Paginated} page with the cursor of the next page, if any
+     */
+    public static <E, T> Paginated<T> fetch(JpaSpecificationExecutor<E> repository, Specification<E> spec,
+                                            GenericFilters filters, Function<E, T> mapper) {
+        return fetch(spec, filters,
+                (seek, limit) -> repository.findBy(seek, query -> query.sortBy(filters.getKeysetSort()).limit(limit).all()),
+                repository::count, mapper);
+    }
+
+    /**
+     * Fetches the page positioned after the cursor of the given filters, with custom queries.
+     * <p>
+     * The rows may be entities or projections; either way they must expose the sort column
+     * and the id as bean properties, since the next cursor is read from the last row.
+     * </p>
+     *
+     * @param spec    the filtering specification
+     * @param filters the filters carrying page size, sort and the optional cursor
+     * @param finder  runs the seek specification sorted by {@link GenericFilters#getKeysetSort()}
+     *                and returns at most the given number of rows
+     * @param counter counts the rows matching the filtering specification
+     * @param mapper  the row to DTO mapping
+     * @param <E>     the entity type
+     * @param <R>     the row type
+     * @param <T>     the DTO type
+     * @return a {@link Paginated} page with the cursor of the next page, if any
+     */
+    public static <E, R, T> Paginated<T> fetch(Specification<E> spec, GenericFilters filters,
+                                               BiFunction<Specification<E>, Integer, List<R>> finder,
+                                               Function<Specification<E>, Long> counter, Function<R, T> mapper) {
+        KeysetCursor cursor = filters.getAfterCursor();
+        int pageSize = filters.getPageSize();
+
+        List<R> rows = finder.apply(spec.and(KeysetSpecification.after(cursor)), pageSize + 1);
+
+        boolean hasNext = rows.size() > pageSize;
+        List<R> page = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext
+                ? KeysetCursor.after(page.get(page.size() - 1), filters.getSortBy(), filters.getSortDirection()).encode()
+                : null;
+        long totalElements = Boolean.TRUE.equals(filters.getWithCount()) ? counter.apply(spec) : -1;
+
+        return new Paginated<>(page.stream().map(mapper).toList(), pageSize, nextCursor, totalElements);
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Setter;
 import org.springframework.data.domain.Page;
 
 import java.util.List;
+import java.util.Map;
 
 @Getter
 @Setter
@@ -16,6 +17,13 @@ public class Paginated<T>{
     int numberOfElements;
     int currentPage;
     int pageSize;
+    String nextCursor;
+
+    /**
+     * Counts of the rows matching the filters, per facet name and facet value, when the
+     * client asked for them; for products {@code brand}, {@code category} and {@code stock}.
+     */
+    Map<String, Map<String, Long>> facets;
 
     public Paginated(Page<T> page) {
         this.data = page.getContent();
@@ -25,4 +33,23 @@ public class Paginated<T>{
         this.currentPage = page.getNumber();
         this.pageSize = page.getSize();
     }
+
+    /**
+     * Creates a keyset page. The page number is unknown (-1), and so are the totals
+     * when the count was not requested.
+     *
+     * @param data          the rows of the page
+     * @param pageSize      the requested page size
+     * @param nextCursor    the cursor of the next page, null on the last page
+     * @param totalElements the total count, or -1 if it was not computed
+     */
+    public Paginated(List<T> data, int pageSize, String nextCursor, long totalElements) {
+        this.data = data;
+        this.totalElements = totalElements;
+        this.totalPages = totalElements < 0 ? -1 : (int) Math.ceil((double) totalElements / pageSize);
+        this.numberOfElements = data.size();
+        this.currentPage = -1;
+        this.pageSize = pageSize;
+        this.nextCursor = nextCursor;
+    }
 }
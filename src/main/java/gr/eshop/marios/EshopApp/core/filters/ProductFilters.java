@@ -30,6 +30,14 @@ public class ProductFilters extends GenericFilters {
     @Nullable
     private String category;
 
+    /** Inclusive lower price bound. */
+    @Nullable
+    private Double minPrice;
+
+    /** Inclusive upper price bound. */
+    @Nullable
+    private Double maxPrice;
+
 
     @Nullable
     private Boolean isActive;
@@ -37,5 +45,9 @@ public class ProductFilters extends GenericFilters {
     @Nullable
     private Boolean isInStock;
 
+    /** Whether the page should also report the brand, category and stock facet counts. Defaults to false. */
+    @Nullable
+    private Boolean withFacets;
+
 
 }
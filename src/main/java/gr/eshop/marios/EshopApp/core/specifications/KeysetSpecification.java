@@ -0,0 +1,78 @@
+package gr.eshop.marios.EshopApp.core.specifications;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppInvalidCursorException;
+import gr.eshop.marios.EshopApp.core.filters.KeysetCursor;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class KeysetSpecification {
+
+    private KeysetSpecification() {
+
+    }
+
+    /**
+     * Creates a specification that keeps only the rows positioned after the given cursor
+     * in the order {@code (sortBy, id)}.
+     * <p>
+     * For an ascending order this is {@code sortBy > v OR (sortBy = v AND id > lastId)},
+     * for a descending order the comparisons are reversed. MySQL orders nulls first when
+     * ascending and last when descending, and the predicate follows the same rule.
+     * </p>
+     *
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param <T>    the entity type
+     * @return a specification for seeking past the cursor
+     * @throws AppInvalidCursorException when the query is built, if the sort value of the
+     *                                   cursor does not fit the type of the column
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Specification<T> after(KeysetCursor cursor) {
+        return ((root, query, criteriaBuilder) -> {
+            if (cursor == null) {
+                return criteriaBuilder.isTrue(criteriaBuilder.literal(true));
+            }
+            Path<Comparable> column = root.get(cursor.sortBy());
+            Path<Long> id = root.get("id");
+            boolean ascending = cursor.direction() == Sort.Direction.ASC;
+            Predicate idAfter = ascending
+                    ? criteriaBuilder.greaterThan(id, cursor.id())
+                    : criteriaBuilder.lessThan(id, cursor.id());
+
+            if (cursor.sortBy().equals("id")) {
+                return idAfter;
+            }
+
+            if (cursor.value() == null) {
+                Predicate sameNull = criteriaBuilder.and(criteriaBuilder.isNull(column), idAfter);
+                return ascending ? criteriaBuilder.or(sameNull, criteriaBuilder.isNotNull(column)) : sameNull;
+            }
+
+            Comparable value = toColumnType(cursor.value(), column.getJavaType());
+            Predicate columnAfter = ascending
+                    ? criteriaBuilder.greaterThan((Expression) column, value)
+                    : criteriaBuilder.lessThan((Expression) column, value);
+            Predicate sameValue = criteriaBuilder.and(criteriaBuilder.equal(column, value), idAfter);
+            Predicate next = criteriaBuilder.or(columnAfter, sameValue);
+            return ascending ? next : criteriaBuilder.or(next, criteriaBuilder.isNull(column));
+        });
+    }
+
+    private static Comparable<?> toColumnType(String value, Class<?> type) {
+        try {
+            if (type == LocalDateTime.class) return LocalDateTime.parse(value);
+            if (type == LocalDate.class) return LocalDate.parse(value);
+            return (Comparable<?>) DefaultConversionService.getSharedInstance().convert(value, type);
+        } catch (RuntimeException e) {
+            throw new AppInvalidCursorException("Invalid pagination cursor value: " + value);
+        }
+    }
+}
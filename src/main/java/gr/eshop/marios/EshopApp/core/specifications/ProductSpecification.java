@@ -3,13 +3,58 @@ package gr.eshop.marios.EshopApp.core.specifications;
 import gr.eshop.marios.EshopApp.model.Brand;
 import gr.eshop.marios.EshopApp.model.Category;
 import gr.eshop.marios.EshopApp.model.Product;
+import jakarta.persistence.criteria.Fetch;
 import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Collection;
+
 public class ProductSpecification {
 
     private ProductSpecification() {}
 
+    /**
+     * Creates a specification that fetch-joins the brand, category and photo of the products.
+     * <p>
+     * Without it Hibernate loads these eager associations with extra selects for every row
+     * of the page. It must come first in the chain so that the brand and category filters
+     * can reuse its joins. Only queries selecting {@link Product} entities are fetch-joined;
+     * count and projection queries are left untouched.
+     * </p>
+     *
+     * @return a specification that only adds fetch joins
+     */
+    public static Specification<Product> trFetchDetails() {
+        return ((root, query, criteriaBuilder) -> {
+            if (Product.class.equals(query.getResultType())) {
+                root.fetch("brand");
+                root.fetch("category");
+                root.fetch("attachmentPhoto", JoinType.LEFT);
+            }
+            return criteriaBuilder.isTrue(criteriaBuilder.literal(true));
+        });
+    }
+
+
+    /**
+     * Creates a specification to filter products by id.
+     *
+     * @param ids the ids of the products, or null for no filtering
+     * @return a specification for filtering products
+     */
+    public static Specification<Product> trProductIdIn(Collection<Long> ids) {
+        return ((root, query, criteriaBuilder) -> {
+            if (ids == null) {
+                return criteriaBuilder.isTrue(criteriaBuilder.literal(true));
+            }
+            if (ids.isEmpty()) {
+                return criteriaBuilder.disjunction();
+            }
+            return root.get("id").in(ids);
+        });
+    }
 
     /**
      * Creates a specification to filter products by active status.
@@ -46,6 +91,28 @@ public class ProductSpecification {
         });
     }
 
+    /**
+     * Creates a specification to filter products by price range.
+     *
+     * @param minPrice the inclusive lower bound, or null for no lower bound
+     * @param maxPrice the inclusive upper bound, or null for no upper bound
+     * @return a specification for filtering products
+     */
+    public static Specification<Product> trProductPriceBetween(Double minPrice, Double maxPrice) {
+        return ((root, query, criteriaBuilder) -> {
+            if (minPrice == null && maxPrice == null) {
+                return criteriaBuilder.isTrue(criteriaBuilder.literal(true));
+            }
+            if (minPrice == null) {
+                return criteriaBuilder.lessThanOrEqualTo(root.get("price"), maxPrice);
+            }
+            if (maxPrice == null) {
+                return criteriaBuilder.greaterThanOrEqualTo(root.get("price"), minPrice);
+            }
+            return criteriaBuilder.between(root.get("price"), minPrice, maxPrice);
+        });
+    }
+
     /**
      * Creates a specification to filter products by brand name.
      *
@@ -57,7 +124,7 @@ public class ProductSpecification {
             if (brandName == null) {
                 return criteriaBuilder.isTrue(criteriaBuilder.literal(true));
             }
-            Join<Product, Brand> brand = root.join("brand");
+            Join<Product, Brand> brand = joinOrFetched(root, "brand");
             return criteriaBuilder.equal(brand.get("brandName"), brandName);
         });
     }
@@ -73,7 +140,7 @@ public class ProductSpecification {
             if (categoryName == null) {
                 return criteriaBuilder.isTrue(criteriaBuilder.literal(true));
             }
-            Join<Product, Category> category = root.join("category");
+            Join<Product, Category> category = joinOrFetched(root, "category");
             return criteriaBuilder.equal(category.get("categoryName"), categoryName);
         });
     }
@@ -95,4 +162,14 @@ public class ProductSpecification {
         });
     }
 
+    @SuppressWarnings("unchecked")
+    private static <X> Join<Product, X> joinOrFetched(Root<Product> root, String attribute) {
+        for (Fetch<Product, ?> fetch : root.getFetches()) {
+            if (fetch.getAttribute().getName().equals(attribute) && fetch instanceof Join<?, ?> join) {
+                return (Join<Product, X>) join;
+            }
+        }
+        return root.join(attribute);
+    }
+
 }
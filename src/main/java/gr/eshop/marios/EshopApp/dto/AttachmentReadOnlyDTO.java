@@ -15,4 +15,7 @@ public class AttachmentReadOnlyDTO {
     private String filePath;
     private String contentType;
     private String extension;
+    private String thumbnailPath;
+    private String cardPath;
+    private String detailPath;
 }
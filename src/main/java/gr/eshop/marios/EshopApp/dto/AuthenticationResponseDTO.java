@@ -14,6 +14,7 @@ public class AuthenticationResponseDTO {
     private String firstname;
     private String userUuid;
     private String token;
+    private String refreshToken;
 
 
 }
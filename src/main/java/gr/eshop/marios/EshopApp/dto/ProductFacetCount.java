@@ -0,0 +1,20 @@
+package gr.eshop.marios.EshopApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Number of products sharing a brand, a category and a stock status, one row of the
+ * facet aggregation. Selected with a constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ProductFacetCount {
+
+    private String brandName;
+    private String categoryName;
+    private Boolean inStock;
+    private Long count;
+}
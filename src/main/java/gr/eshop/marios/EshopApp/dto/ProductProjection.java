@@ -0,0 +1,47 @@
+package gr.eshop.marios.EshopApp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of a product listing: exactly the columns that make up a
+ * {@link ProductReadOnlyDTO}, with the brand, category and photo flattened in, plus
+ * the audit timestamps a listing can be sorted by, so that a keyset cursor can be read
+ * from the last row. Selected with a constructor expression, so no entity is ever
+ * managed for it.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ProductProjection {
+
+    private Long id;
+    private String uuid;
+    private String name;
+    private String sku;
+    private Double price;
+    private Integer quantity;
+    private String description;
+    private Boolean isActive;
+    private Boolean inStock;
+    private LocalDateTime createdAt;
+    private LocalDateTime updated;
+
+    private Long brandId;
+    private String brandName;
+
+    private Long categoryId;
+    private String categoryName;
+
+    private String photoFilename;
+    private String photoSavedName;
+    private String photoFilePath;
+    private String photoContentType;
+    private String photoExtension;
+    private String photoThumbnailPath;
+    private String photoCardPath;
+    private String photoDetailPath;
+}
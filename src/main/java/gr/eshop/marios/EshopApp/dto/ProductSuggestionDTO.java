@@ -0,0 +1,18 @@
+package gr.eshop.marios.EshopApp.dto;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class ProductSuggestionDTO {
+    private String text;
+
+    /** NAME, SKU, BRAND or CATEGORY. */
+    private String type;
+
+    /** The product the suggestion points to, null for brands and categories. */
+    private String productUuid;
+}
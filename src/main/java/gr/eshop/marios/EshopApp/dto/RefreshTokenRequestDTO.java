@@ -0,0 +1,15 @@
+package gr.eshop.marios.EshopApp.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class RefreshTokenRequestDTO {
+
+    @NotNull(message = "Το refresh token δεν μπορεί να μην υπάρχει.")
+    private String refreshToken;
+}
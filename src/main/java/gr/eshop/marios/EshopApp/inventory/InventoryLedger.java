@@ -0,0 +1,218 @@
+package gr.eshop.marios.EshopApp.inventory;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory stock counters for hot SKUs, enabled with {@code eshop.inventory.ledger.enabled=true}.
+ * <p>
+ * Without the ledger every order updates the product rows it buys, and a best-selling product
+ * becomes a row-lock hotspot. With the ledger an order only reserves its quantities against a
+ * per-SKU counter and journals its items with {@code stockApplied = false}; the
+ * {@link StockJournal} applies the committed journal to the products in batches every few
+ * milliseconds, so the product row is updated once per batch instead of once per order.
+ * </p>
+ * <p>
+ * A counter is seeded from the product's stock minus its unapplied journal and re-synced from
+ * the database after every flush. Reservations of rolled back orders are released. A product
+ * whose stock is set through the admin API keeps its counter, which {@link #restock(String, int)}
+ * re-seeds in place, so restocking a sold-out product makes it orderable at once. The counters
+ * live in one JVM, so the ledger must only be enabled when a single instance of the application
+ * takes orders.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "eshop.inventory.ledger.enabled", havingValue = "true")
+public class InventoryLedger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InventoryLedger.class);
+
+    private final StockJournal stockJournal;
+    private final int flushBatchSize;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicBoolean journalDirty = new AtomicBoolean();
+
+    public InventoryLedger(StockJournal stockJournal,
+                           @Value("${eshop.inventory.ledger.flush-batch-size:500}") int flushBatchSize) {
+        this.stockJournal = stockJournal;
+        this.flushBatchSize = flushBatchSize;
+        LOGGER.info("Inventory ledger enabled, flushing up to {} order items per batch", flushBatchSize);
+    }
+
+    /**
+     * Reserves the given quantities for the current transaction, all or nothing.
+     * <p>
+     * If the transaction rolls back the reservations are released; if it commits they stay
+     * reserved until the journaled order items have been flushed to the products.
+     * </p>
+     *
+     * @param quantitiesBySku the quantities to reserve per SKU
+     * @throws AppObjectInvalidArgumentException if any SKU does not have enough stock left
+     */
+    public void reserve(Map<String, Integer> quantitiesBySku) throws AppObjectInvalidArgumentException {
+        List<Map.Entry<Counter, Integer>> reserved = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(quantitiesBySku).entrySet()) {
+            Counter counter = counterFor(entry.getKey());
+            if (!counter.reserve(entry.getValue())) {
+                reserved.forEach(r -> r.getKey().release(r.getValue()));
+                throw new AppObjectInvalidArgumentException("Product", "Product stock cannot be negative for SKU: " + entry.getKey());
+            }
+            reserved.add(Map.entry(counter, entry.getValue()));
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        journalDirty.set(true);
+                    } else {
+                        reserved.forEach(r -> r.getKey().release(r.getValue()));
+                    }
+                }
+            });
+        } else {
+            journalDirty.set(true);
+        }
+    }
+
+    /**
+     * Applies the committed journal to the product stock, if any order was placed since the last flush.
+     */
+    @Scheduled(fixedDelayString = "${eshop.inventory.ledger.flush-interval-ms:5}")
+    public void flush() {
+        if (!journalDirty.getAndSet(false)) return;
+        try {
+            if (stockJournal.flush(flushBatchSize) == flushBatchSize) {
+                journalDirty.set(true);
+            }
+        } catch (RuntimeException e) {
+            journalDirty.set(true);
+            LOGGER.error("Could not flush the stock journal", e);
+        }
+    }
+
+    /**
+     * Moves the flushed quantities out of the pending reservations and re-syncs the
+     * counters with the stock now stored in the database.
+     *
+     * @param event the {@link StockFlushedEvent} of the committed batch
+     */
+    @EventListener
+    public void onStockFlushed(StockFlushedEvent event) {
+        event.appliedBySku().forEach((sku, applied) -> {
+            Counter counter = counters.get(sku);
+            if (counter != null) {
+                counter.flushed(applied, event.quantityBySku().getOrDefault(sku, 0));
+            }
+        });
+    }
+
+    /**
+     * Re-seeds the counter of a SKU whose stock the current transaction sets to {@code quantity}.
+     * <p>
+     * The counter keeps its pending reservations, so orders still in flight release or apply
+     * their items as usual, and once the transaction has committed {@code quantity} minus the
+     * pending reservations is available. Until then no order may reserve more than the new stock,
+     * so the journal never takes the product below zero, whichever way the transaction ends.
+     * </p>
+     *
+     * @param sku      the SKU of the edited product
+     * @param quantity the new stock of the product, 0 if it is deleted
+     * @throws AppObjectInvalidArgumentException if more than {@code quantity} units are reserved already
+     */
+    public void restock(String sku, int quantity) throws AppObjectInvalidArgumentException {
+        Counter counter = counterFor(sku);
+        if (!counter.restock(quantity)) {
+            throw new AppObjectInvalidArgumentException("Product", "Product stock cannot be set below the units "
+                    + "already ordered for SKU: " + sku);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    counter.restocked(quantity, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            counter.restocked(quantity, true);
+        }
+    }
+
+    private Counter counterFor(String sku) {
+        Counter counter = counters.get(sku);
+        if (counter != null) return counter;
+        return stockJournal.withStockLevel(sku, (quantity, unapplied) ->
+                counters.computeIfAbsent(sku, key -> new Counter(quantity - unapplied, unapplied)));
+    }
+
+    /**
+     * Stock of one SKU: {@code available} is what can still be reserved and {@code pending}
+     * is what has been reserved but not yet applied to the product row. While the stock is being
+     * set, {@code ceiling} is the most {@code pending} may reach.
+     */
+    private static final class Counter {
+
+        private long available;
+        private long pending;
+        private long ceiling = Long.MAX_VALUE;
+        private int restocks;
+
+        Counter(long available, long pending) {
+            this.available = available;
+            this.pending = pending;
+        }
+
+        synchronized boolean reserve(int quantity) {
+            if (available < quantity || pending + quantity > ceiling) return false;
+            available -= quantity;
+            pending += quantity;
+            return true;
+        }
+
+        synchronized void release(int quantity) {
+            available += quantity;
+            pending -= quantity;
+        }
+
+        synchronized void flushed(int applied, int stock) {
+            pending -= applied;
+            if (restocks > 0) {
+                // applied units may have been taken out of the stock being replaced; keep the bound safe
+                ceiling -= applied;
+            }
+            available = stock - pending;
+        }
+
+        synchronized boolean restock(int quantity) {
+            if (pending > quantity) return false;
+            ceiling = restocks++ == 0 ? quantity : Math.min(ceiling, quantity);
+            return true;
+        }
+
+        synchronized void restocked(int quantity, boolean committed) {
+            if (committed) {
+                available = Math.min(quantity, ceiling) - pending;
+            }
+            if (--restocks == 0) {
+                ceiling = Long.MAX_VALUE;
+            }
+        }
+    }
+}
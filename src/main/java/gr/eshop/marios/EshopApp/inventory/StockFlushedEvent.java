@@ -0,0 +1,19 @@
+package gr.eshop.marios.EshopApp.inventory;
+
+import java.util.Map;
+
+/**
+ * Published by the {@link StockJournal} after a batch of journaled order items has been
+ * applied to the product stock and committed.
+ *
+ * @param orderItemCount the number of order items applied
+ * @param appliedBySku   the quantity applied per SKU
+ * @param quantityBySku  the stock of each SKU right after the batch was applied
+ */
+public record StockFlushedEvent(int orderItemCount, Map<String, Integer> appliedBySku, Map<String, Integer> quantityBySku) {
+
+    public StockFlushedEvent {
+        appliedBySku = Map.copyOf(appliedBySku);
+        quantityBySku = Map.copyOf(quantityBySku);
+    }
+}
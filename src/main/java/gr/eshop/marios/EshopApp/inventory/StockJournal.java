@@ -0,0 +1,142 @@
+package gr.eshop.marios.EshopApp.inventory;
+
+import gr.eshop.marios.EshopApp.catalog.ProductChangedEvent;
+import gr.eshop.marios.EshopApp.model.Product;
+import gr.eshop.marios.EshopApp.repository.OrderItemRepository;
+import gr.eshop.marios.EshopApp.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Applies journaled order items to the product stock.
+ * <p>
+ * When the {@link InventoryLedger} is enabled, orders only reserve stock in memory and
+ * persist their items with {@code stockApplied = false}. Those rows are the durable journal
+ * of the reservations: a flush sums them per SKU, takes the sums out of the products with
+ * one UPDATE per SKU and marks the rows as applied, all in one transaction. A crash loses
+ * nothing but the in-memory counters, so on startup the journal is replayed until empty,
+ * whether or not the ledger is still enabled.
+ * </p>
+ * <p>
+ * Flushes run one at a time and each commits before the lock is released, so two flushes
+ * can never pick up the same rows. The items of a product whose stock does not cover them
+ * are left in the journal and logged, as the ledger never reserves more than the stock.
+ * </p>
+ */
+@Component
+public class StockJournal {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockJournal.class);
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public StockJournal(OrderItemRepository orderItemRepository, ProductRepository productRepository,
+                        ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+        this.orderItemRepository = orderItemRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Applies up to {@code batchSize} journaled order items to the product stock.
+     * <p>
+     * A {@link StockFlushedEvent} is published after the batch has committed, while the
+     * flush lock is still held.
+     * </p>
+     *
+     * @param batchSize the maximum number of order items to apply
+     * @return the number of order items applied
+     */
+    public int flush(int batchSize) {
+        lock.lock();
+        try {
+            StockFlushedEvent flushed = transactionTemplate.execute(status -> applyBatch(batchSize));
+            if (flushed == null) return 0;
+            eventPublisher.publishEvent(flushed);
+            return flushed.orderItemCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the stock of a product together with its journaled quantity that has not been
+     * applied yet, and hands both to {@code action} while no flush can run.
+     *
+     * @param sku    the SKU of the product
+     * @param action receives the stock (0 if there is no such product) and the unapplied quantity
+     * @param <T>    the result type
+     * @return the result of {@code action}
+     */
+    public <T> T withStockLevel(String sku, BiFunction<Integer, Long, T> action) {
+        lock.lock();
+        try {
+            Integer quantity = transactionTemplate.execute(status -> productRepository.findBySku(sku)
+                    .map(Product::getQuantity)
+                    .orElse(0));
+            Long unapplied = transactionTemplate.execute(status -> orderItemRepository.sumStockNotApplied(sku));
+            return action.apply(quantity == null ? 0 : quantity, unapplied == null ? 0 : unapplied);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replays every journaled order item left behind by a previous run.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        int total = 0;
+        int applied;
+        while ((applied = flush(RECONCILE_BATCH_SIZE)) > 0) {
+            total += applied;
+        }
+        if (total > 0) {
+            LOGGER.warn("Stock journal reconciled: {} order items applied to product stock", total);
+        }
+    }
+
+    private StockFlushedEvent applyBatch(int batchSize) {
+        List<StockJournalEntry> entries = orderItemRepository.findStockNotApplied(PageRequest.of(0, batchSize));
+        if (entries.isEmpty()) return null;
+
+        Map<String, Integer> appliedBySku = new TreeMap<>();
+        entries.forEach(entry -> appliedBySku.merge(entry.sku(), entry.quantity(), Integer::sum));
+        appliedBySku.entrySet().removeIf(delta -> {
+            if (productRepository.applyStockDelta(delta.getKey(), delta.getValue()) > 0) return false;
+            // the ledger never reserves more than the stock, so this is a bug: keep the entries journaled
+            LOGGER.error("Stock shortfall for SKU {}: the stock does not cover {} ordered units", delta.getKey(), delta.getValue());
+            return true;
+        });
+        List<StockJournalEntry> applied = entries.stream().filter(entry -> appliedBySku.containsKey(entry.sku())).toList();
+        if (applied.isEmpty()) return null;
+        orderItemRepository.markStockApplied(applied.stream().map(StockJournalEntry::orderItemId).toList());
+
+        List<Product> products = productRepository.findBySkuIn(appliedBySku.keySet());
+        Map<String, Integer> quantityBySku = new TreeMap<>();
+        products.forEach(product -> quantityBySku.put(product.getSku(), product.getQuantity()));
+        eventPublisher.publishEvent(ProductChangedEvent.of(products.stream().map(Product::getId).toList()));
+
+        LOGGER.debug("Stock journal flushed {} order items for {} SKUs", applied.size(), appliedBySku.size());
+        return new StockFlushedEvent(applied.size(), appliedBySku, quantityBySku);
+    }
+}
@@ -0,0 +1,12 @@
+package gr.eshop.marios.EshopApp.inventory;
+
+/**
+ * An order item whose quantity has been reserved on the {@link InventoryLedger}
+ * but not yet applied to the product's stock.
+ *
+ * @param orderItemId the id of the order item
+ * @param sku         the SKU of the ordered product
+ * @param quantity    the ordered quantity
+ */
+public record StockJournalEntry(Long orderItemId, String sku, Integer quantity) {
+}
@@ -15,6 +15,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -32,7 +33,6 @@ public class Mapper {
     private final BrandRepository brandRepository;
     private final CategoryRepository categoryRepository;
     private final RegionRepository regionRepository;
-    private final ProductRepository productRepository;
 
 
     /**
@@ -278,10 +278,10 @@ public class Mapper {
      * Maps an OrderInsertDTO to an Order entity.
      *
      * @param orderInsertDTO the OrderInsertDTO containing order details
+     * @param productsBySku the ordered products, already resolved by SKU
      * @return the mapped Order entity
      */
-    public Order mapToOrder(OrderInsertDTO orderInsertDTO) {
-        OrderReadOnlyDTO orderReadOnlyDTO = new OrderReadOnlyDTO();
+    public Order mapToOrder(OrderInsertDTO orderInsertDTO, Map<String, Product> productsBySku) {
         var order = new Order();
         Customer customer = customerRepository.findByUuid(orderInsertDTO.getCustomerUuid())
                 .orElseThrow(() -> {
@@ -292,7 +292,7 @@ public class Mapper {
         LOGGER.info("Customer: " + customer.getUuid());
 
         order.setStatus((orderInsertDTO.getStatus()) != null ? orderInsertDTO.getStatus() : "CONFIRMED");
-        order.setOrderItems(mapOrderItemsTo(orderInsertDTO.getOrderItems()));
+        order.setOrderItems(mapOrderItemsTo(orderInsertDTO.getOrderItems(), productsBySku));
 
         order.setOrderTrackingNumber(order.getOrderTrackingNumber());
         order.setTotalPrice(order.totalPrice());
@@ -306,13 +306,12 @@ public class Mapper {
      * Maps an OrderItemInsertDTO to an OrderItem entity.
      *
      * @param orderItemInsertDTO the OrderItemInsertDTO containing order item details
+     * @param product the ordered product
      * @return the mapped OrderItem entity
      */
-    public OrderItem mapToOrderItem(OrderItemInsertDTO orderItemInsertDTO) {
+    public OrderItem mapToOrderItem(OrderItemInsertDTO orderItemInsertDTO, Product product) {
         OrderItem orderItem = new OrderItem();
 
-        Product product = productRepository.findBySku(orderItemInsertDTO.getSku())
-                .orElseThrow(() -> new RuntimeException("Product with Sku: " + orderItemInsertDTO.getSku() + " not found"));
         orderItem.setName(product.getName());
         orderItem.setUnitPrice(product.getPrice());
         orderItem.setQuantity(orderItemInsertDTO.getQuantity());
@@ -335,11 +334,12 @@ public class Mapper {
      * Maps a list of OrderItemInsertDTOs to a set of OrderItem entities.
      *
      * @param orderItemInsertDTOs the list of OrderItemInsertDTOs
+     * @param productsBySku the ordered products, already resolved by SKU
      * @return the mapped set of OrderItem entities
      */
-    public Set<OrderItem> mapOrderItemsTo(List<OrderItemInsertDTO> orderItemInsertDTOs) {
+    public Set<OrderItem> mapOrderItemsTo(List<OrderItemInsertDTO> orderItemInsertDTOs, Map<String, Product> productsBySku) {
         return orderItemInsertDTOs.stream()
-                .map(this::mapToOrderItem)
+                .map(item -> mapToOrderItem(item, productsBySku.get(item.getSku())))
                 .collect(Collectors.toSet());
     }
 
@@ -356,6 +356,9 @@ public class Mapper {
         attachment.setSavedName(attachmentPhoto.getSavedName());
         attachment.setFilePath(attachmentPhoto.getFilePath());
         attachment.setContentType(attachmentPhoto.getContentType());
+        attachment.setThumbnailPath(attachmentPhoto.getThumbnailPath());
+        attachment.setCardPath(attachmentPhoto.getCardPath());
+        attachment.setDetailPath(attachmentPhoto.getDetailPath());
 
         return attachment;
     }
@@ -497,6 +500,34 @@ public class Mapper {
 
     }
 
+    /**
+     * Maps a ProductProjection row to a ProductReadOnlyDTO; the image is null for a product without a photo.
+     *
+     * @param product the ProductProjection to map
+     * @return the mapped ProductReadOnlyDTO
+     */
+    public ProductReadOnlyDTO mapToProductReadOnlyDTO(ProductProjection product) {
+        ProductReadOnlyDTO productReadOnlyDTO = new ProductReadOnlyDTO();
+        productReadOnlyDTO.setId(product.getId());
+        productReadOnlyDTO.setUuid(product.getUuid());
+        productReadOnlyDTO.setName(product.getName());
+        productReadOnlyDTO.setDescription(product.getDescription());
+        productReadOnlyDTO.setPrice(product.getPrice());
+        productReadOnlyDTO.setQuantity(product.getQuantity());
+        productReadOnlyDTO.setCategory(new CategoryReadOnlyDTO(product.getCategoryId(), product.getCategoryName()));
+        productReadOnlyDTO.setBrand(new BrandReadOnlyDTO(product.getBrandId(), product.getBrandName()));
+        productReadOnlyDTO.setSku(product.getSku());
+        productReadOnlyDTO.setInStock(product.getInStock());
+        productReadOnlyDTO.setIsActive(product.getIsActive());
+        if (product.getPhotoSavedName() != null) {
+            productReadOnlyDTO.setImage(new AttachmentReadOnlyDTO(product.getPhotoFilename(), product.getPhotoSavedName(),
+                    product.getPhotoFilePath(), product.getPhotoContentType(), product.getPhotoExtension(),
+                    product.getPhotoThumbnailPath(), product.getPhotoCardPath(), product.getPhotoDetailPath()));
+        }
+
+        return productReadOnlyDTO;
+    }
+
     /**
      * Maps a Brand entity to a BrandReadOnlyDTO.
      *
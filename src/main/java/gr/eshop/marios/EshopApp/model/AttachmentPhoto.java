@@ -23,5 +23,17 @@ public class AttachmentPhoto {
     private String contentType;
     private String extension;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "thumbnail_path")
+    private String thumbnailPath;
+
+    @Column(name = "card_path")
+    private String cardPath;
+
+    @Column(name = "detail_path")
+    private String detailPath;
+
 
 }
@@ -0,0 +1,34 @@
+package gr.eshop.marios.EshopApp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored image file, identified by the SHA-256 hash of its content and shared by every
+ * {@link AttachmentPhoto} with that hash.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Table(name = "image_blobs", indexes = @Index(name = "idx_ref_count_released_at", columnList = "ref_count, released_at"))
+public class ImageBlob extends AbstractEntity {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(name = "saved_name", nullable = false)
+    private String savedName;
+
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+}
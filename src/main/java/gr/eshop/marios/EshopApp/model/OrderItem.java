@@ -48,6 +48,12 @@ public class OrderItem extends AbstractEntity {
 
     private Double totalPrice;
 
+    /**
+     * False while the quantity of this item has only been reserved on the inventory
+     * ledger and not yet taken out of the product's stock.
+     */
+    private Boolean stockApplied;
+
     @ManyToOne
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
@@ -15,6 +15,14 @@ import java.util.UUID;
 @Setter
 @Builder
 @ToString
+@NamedEntityGraph(
+        name = Product.WITH_DETAILS_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("brand"),
+                @NamedAttributeNode("category"),
+                @NamedAttributeNode("attachmentPhoto"),
+        }
+)
 @Table(
         name = "products",
         indexes = {
@@ -24,10 +32,14 @@ import java.util.UUID;
                 @Index(name = "idx_category", columnList = "category_id"),
                 @Index(name = "idx_isActive", columnList = "is_active"),
                 @Index(name = "idx_inStock", columnList = "in_stock"),
+                @Index(name = "idx_isActive_price_id", columnList = "is_active, price, id"),
         }
 )
 public class Product extends AbstractEntity{
 
+    /** Loads the brand, category and photo together with the product in one query. */
+    public static final String WITH_DETAILS_GRAPH = "Product.withDetails";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -3,8 +3,25 @@ package gr.eshop.marios.EshopApp.repository;
 import gr.eshop.marios.EshopApp.model.AttachmentPhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface AttachmentPhotoRepository extends JpaRepository<AttachmentPhoto, Long>, JpaSpecificationExecutor<AttachmentPhoto> {
 
+    /**
+     * Records the paths of the variants of an image on every attachment of that content.
+     *
+     * @param contentHash   the hash of the image
+     * @param thumbnailPath the path of the thumbnail
+     * @param cardPath      the path of the card-sized variant
+     * @param detailPath    the path of the detail-sized variant
+     * @return the number of updated attachments
+     */
+    @Modifying
+    @Query("UPDATE AttachmentPhoto a SET a.thumbnailPath = :thumbnailPath, a.cardPath = :cardPath, "
+            + "a.detailPath = :detailPath WHERE a.contentHash = :contentHash")
+    int updateVariants(@Param("contentHash") String contentHash, @Param("thumbnailPath") String thumbnailPath,
+                       @Param("cardPath") String cardPath, @Param("detailPath") String detailPath);
 
 }
@@ -14,6 +14,7 @@ public interface CustomerRepository extends JpaRepository<Customer, Long>, JpaSp
     Optional<Customer> findByPaymentInfoId(Long id);
     Optional<Customer> findByCustomerInfoId(Long id);
     Optional<Customer> findByUserUuid(String uuid);
+    boolean existsByUuid(String uuid);
 
 
 
@@ -0,0 +1,62 @@
+package gr.eshop.marios.EshopApp.repository;
+
+import gr.eshop.marios.EshopApp.model.ImageBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    /**
+     * Inserts a blob without references, failing if a blob with that hash already exists.
+     *
+     * @param hash      the hash of the blob
+     * @param savedName the name the content is stored under
+     * @param size      the size of the content, in bytes
+     * @param now       the time of the insert, from which the unreferenced blob ages
+     */
+    @Modifying
+    @Query("INSERT INTO ImageBlob (hash, savedName, size, refCount, releasedAt, createdAt) "
+            + "VALUES (:hash, :savedName, :size, 0, :now, :now)")
+    void insertUnreferenced(@Param("hash") String hash, @Param("savedName") String savedName,
+                            @Param("size") long size, @Param("now") LocalDateTime now);
+
+    /**
+     * Adds a reference to a blob.
+     *
+     * @param hash the hash of the blob
+     * @return 1 if the blob exists, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount + 1, b.releasedAt = null WHERE b.hash = :hash")
+    int acquire(@Param("hash") String hash);
+
+    /**
+     * Removes a reference from a blob.
+     *
+     * @param hash the hash of the blob
+     * @param now  the time of the release, from which an unreferenced blob ages
+     * @return 1 if a reference was removed, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount - 1, b.releasedAt = :now WHERE b.hash = :hash AND b.refCount > 0")
+    int release(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    @Query("SELECT b.savedName FROM ImageBlob b WHERE b.hash = :hash")
+    Optional<String> findSavedNameByHash(@Param("hash") String hash);
+
+    @Query("SELECT b.hash FROM ImageBlob b WHERE b.refCount = 0 AND b.releasedAt < :releasedBefore")
+    List<String> findOrphanHashes(@Param("releasedBefore") LocalDateTime releasedBefore, Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ImageBlob b WHERE b.hash = :hash")
+    Optional<ImageBlob> findForUpdate(@Param("hash") String hash);
+}
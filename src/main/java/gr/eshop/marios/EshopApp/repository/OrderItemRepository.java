@@ -1,11 +1,40 @@
 package gr.eshop.marios.EshopApp.repository;
 
+import gr.eshop.marios.EshopApp.catalog.ProductSales;
+import gr.eshop.marios.EshopApp.inventory.StockJournalEntry;
 import gr.eshop.marios.EshopApp.model.OrderItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, JpaSpecificationExecutor<OrderItem> {
     Optional<OrderItem> findByOrderId(Long id);
+
+    boolean existsByAttachmentPhotoId(Long attachmentPhotoId);
+
+    @Query("select new gr.eshop.marios.EshopApp.catalog.ProductSales(i.sku, sum(i.quantity)) " +
+            "from OrderItem i group by i.sku")
+    List<ProductSales> findSales();
+
+    @Query("select new gr.eshop.marios.EshopApp.catalog.ProductSales(i.sku, sum(i.quantity)) " +
+            "from OrderItem i where i.sku in :skus group by i.sku")
+    List<ProductSales> findSalesBySkuIn(@Param("skus") Collection<String> skus);
+
+    @Query("select new gr.eshop.marios.EshopApp.inventory.StockJournalEntry(i.id, i.sku, i.quantity) " +
+            "from OrderItem i where i.stockApplied = false order by i.id")
+    List<StockJournalEntry> findStockNotApplied(Pageable pageable);
+
+    @Query("select coalesce(sum(i.quantity), 0) from OrderItem i where i.sku = :sku and i.stockApplied = false")
+    long sumStockNotApplied(@Param("sku") String sku);
+
+    @Modifying
+    @Query("update OrderItem i set i.stockApplied = true where i.id in :ids")
+    int markStockApplied(@Param("ids") Collection<Long> ids);
 }
@@ -1,9 +1,17 @@
 package gr.eshop.marios.EshopApp.repository;
 
 import gr.eshop.marios.EshopApp.model.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
@@ -15,6 +23,26 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
     Optional<Order> findByCustomerUuid(String uuid);
     Optional<Order> findByOrderTrackingNumber(String trackingNumber);
 
+    /*
+     * Order history is read in two steps: first the ids of one page of a customer's orders,
+     * newest first, then those orders with their items fetched in a single query. Paging the
+     * ids keeps LIMIT in the database, which a collection fetch join would prevent.
+     */
 
+    @Query(value = "select o.id from Order o where o.customer.uuid = :customerUuid order by o.id desc",
+            countQuery = "select count(o) from Order o where o.customer.uuid = :customerUuid")
+    Page<Long> findIdsByCustomerUuid(@Param("customerUuid") String customerUuid, Pageable pageable);
+
+    @Query("select o.id from Order o where o.customer.uuid = :customerUuid and o.id < :beforeId order by o.id desc")
+    List<Long> findIdsByCustomerUuidBefore(@Param("customerUuid") String customerUuid,
+                                           @Param("beforeId") Long beforeId, Limit limit);
+
+    @EntityGraph(attributePaths = {"orderItems", "orderItems.brand", "orderItems.category", "orderItems.attachmentPhoto"})
+    @Query("select o from Order o where o.id in :ids order by o.id desc")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"orderItems", "orderItems.brand", "orderItems.category", "orderItems.attachmentPhoto"})
+    @Query("select o from Order o where o.customer.uuid = :customerUuid order by o.id desc")
+    List<Order> findWithItemsByCustomerUuid(@Param("customerUuid") String customerUuid);
 
 }
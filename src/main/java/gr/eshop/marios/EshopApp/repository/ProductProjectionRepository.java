@@ -0,0 +1,45 @@
+package gr.eshop.marios.EshopApp.repository;
+
+import gr.eshop.marios.EshopApp.dto.ProductFacetCount;
+import gr.eshop.marios.EshopApp.dto.ProductProjection;
+import gr.eshop.marios.EshopApp.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Specification queries that select {@link ProductProjection}s instead of {@link Product} entities.
+ */
+public interface ProductProjectionRepository {
+
+    /**
+     * Finds a page of product projections.
+     *
+     * @param spec     the filtering specification, may be null
+     * @param pageable the requested page and sort
+     * @return the page of projections
+     */
+    Page<ProductProjection> findProjections(Specification<Product> spec, Pageable pageable);
+
+    /**
+     * Finds at most {@code limit} product projections in the given order.
+     *
+     * @param spec  the filtering specification, may be null
+     * @param sort  the sort order
+     * @param limit the maximum number of rows, or 0 for no limit
+     * @return the projections
+     */
+    List<ProductProjection> findProjections(Specification<Product> spec, Sort sort, int limit);
+
+    /**
+     * Counts the products matching the specification per brand, category and stock status,
+     * with a single GROUP BY query.
+     *
+     * @param spec the filtering specification, may be null
+     * @return one row per brand, category and stock status combination that has products
+     */
+    List<ProductFacetCount> findFacetCounts(Specification<Product> spec);
+}
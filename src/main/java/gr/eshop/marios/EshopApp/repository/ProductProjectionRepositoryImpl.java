@@ -0,0 +1,126 @@
+package gr.eshop.marios.EshopApp.repository;
+
+import gr.eshop.marios.EshopApp.dto.ProductFacetCount;
+import gr.eshop.marios.EshopApp.dto.ProductProjection;
+import gr.eshop.marios.EshopApp.model.AttachmentPhoto;
+import gr.eshop.marios.EshopApp.model.Brand;
+import gr.eshop.marios.EshopApp.model.Category;
+import gr.eshop.marios.EshopApp.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Builds the projection queries with the Criteria API, so the same {@link Specification}s
+ * used for the entity queries filter the projections too.
+ * <p>
+ * The queries run in read-only transactions and select scalar columns only: nothing enters
+ * the persistence context and Hibernate keeps no dirty-checking snapshots for them.
+ * </p>
+ */
+@Transactional(readOnly = true)
+public class ProductProjectionRepositoryImpl implements ProductProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ProductProjection> findProjections(Specification<Product> spec, Pageable pageable) {
+        TypedQuery<ProductProjection> query = entityManager.createQuery(selectQuery(spec, pageable.getSort()));
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<ProductProjection> findProjections(Specification<Product> spec, Sort sort, int limit) {
+        TypedQuery<ProductProjection> query = entityManager.createQuery(selectQuery(spec, sort));
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<ProductFacetCount> findFacetCounts(Specification<Product> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductFacetCount> query = criteriaBuilder.createQuery(ProductFacetCount.class);
+        Root<Product> root = query.from(Product.class);
+        applySpecification(spec, root, query, criteriaBuilder);
+
+        Join<Product, Brand> brand = joinOnce(root, "brand", JoinType.INNER);
+        Join<Product, Category> category = joinOnce(root, "category", JoinType.INNER);
+        Expression<Boolean> inStock = criteriaBuilder.coalesce(root.<Boolean>get("inStock"), false);
+
+        query.select(criteriaBuilder.construct(ProductFacetCount.class,
+                brand.get("brandName"), category.get("categoryName"), inStock, criteriaBuilder.count(root)));
+        query.groupBy(brand.get("brandName"), category.get("categoryName"), inStock);
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private CriteriaQuery<ProductProjection> selectQuery(Specification<Product> spec, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductProjection> query = criteriaBuilder.createQuery(ProductProjection.class);
+        Root<Product> root = query.from(Product.class);
+        applySpecification(spec, root, query, criteriaBuilder);
+
+        Join<Product, Brand> brand = joinOnce(root, "brand", JoinType.INNER);
+        Join<Product, Category> category = joinOnce(root, "category", JoinType.INNER);
+        Join<Product, AttachmentPhoto> photo = joinOnce(root, "attachmentPhoto", JoinType.LEFT);
+
+        query.select(criteriaBuilder.construct(ProductProjection.class,
+                root.get("id"), root.get("uuid"), root.get("name"), root.get("sku"), root.get("price"),
+                root.get("quantity"), root.get("description"), root.get("isActive"), root.get("inStock"),
+                root.get("createdAt"), root.get("updated"),
+                brand.get("id"), brand.get("brandName"),
+                category.get("id"), category.get("categoryName"),
+                photo.get("filename"), photo.get("savedName"), photo.get("filePath"),
+                photo.get("contentType"), photo.get("extension"),
+                photo.get("thumbnailPath"), photo.get("cardPath"), photo.get("detailPath")));
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        return query;
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        applySpecification(spec, root, query, criteriaBuilder);
+        query.select(criteriaBuilder.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void applySpecification(Specification<Product> spec, Root<Product> root,
+                                           CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        if (spec == null) return;
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    /**
+     * Reuses the join a filter of the specification already made on the attribute, if any.
+     */
+    @SuppressWarnings("unchecked")
+    private static <X> Join<Product, X> joinOnce(Root<Product> root, String attribute, JoinType joinType) {
+        for (Join<Product, ?> join : root.getJoins()) {
+            if (join.getAttribute().getName().equals(attribute)) {
+                return (Join<Product, X>) join;
+            }
+        }
+        return root.join(attribute, joinType);
+    }
+}
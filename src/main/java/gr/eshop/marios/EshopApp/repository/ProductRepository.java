@@ -4,21 +4,88 @@ package gr.eshop.marios.EshopApp.repository;
 import gr.eshop.marios.EshopApp.model.Brand;
 import gr.eshop.marios.EshopApp.model.Category;
 import gr.eshop.marios.EshopApp.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductProjectionRepository {
 
+    /*
+     * Brand, category and photo are eager, so every query that returns products is
+     * given the Product.withDetails graph: they are loaded with joins in the same
+     * statement instead of with one extra select per row. The filtered listings get
+     * the same joins from ProductSpecification.trFetchDetails().
+     */
+
+    @Override
+    @EntityGraph(Product.WITH_DETAILS_GRAPH)
+    List<Product> findAll();
+
+    @Override
+    @EntityGraph(Product.WITH_DETAILS_GRAPH)
+    Page<Product> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(Product.WITH_DETAILS_GRAPH)
+    List<Product> findAllById(Iterable<Long> ids);
+
+    @EntityGraph(Product.WITH_DETAILS_GRAPH)
     Optional<Product> findByUuid(String uuid);
     Optional<Product> findByName(String name);
     Optional<Product> findByBrand(Brand brand);
     Optional<Product> findByCategory(Category category);
+    @EntityGraph(Product.WITH_DETAILS_GRAPH)
     Optional<Product> findBySku(String sku);
     Optional<Product> findByIsActive(Boolean isActive);
     Optional<Product> findByInStock(Boolean inStock);
     Optional<Product> findByCategoryId(Long categoryId);
     Optional<Product> findByBrandId(Long brandId);
+    @EntityGraph(Product.WITH_DETAILS_GRAPH)
+    List<Product> findBySkuIn(Collection<String> skus);
+
+    /**
+     * Atomically takes the given quantity out of a product's stock.
+     * <p>
+     * A single conditional UPDATE: the row is only changed while enough stock is left,
+     * so concurrent orders can neither oversell nor overwrite each other's decrements.
+     * {@code inStock} is computed from the quantity before the decrement.
+     * </p>
+     *
+     * @param sku      the SKU of the product
+     * @param quantity the quantity to take, must be positive
+     * @return 1 if the stock was decremented, 0 if there was not enough stock
+     */
+    @Modifying
+    @Query("update Product p set p.inStock = case when p.quantity > :quantity then true else false end, " +
+            "p.quantity = p.quantity - :quantity, p.updated = local datetime " +
+            "where p.sku = :sku and p.quantity >= :quantity")
+    int decrementStock(@Param("sku") String sku, @Param("quantity") int quantity);
+
+    /**
+     * Applies a stock delta that has already been reserved on the inventory ledger.
+     * Like {@link #decrementStock(String, int)} the stock never goes negative: the row is
+     * left untouched when the stock no longer covers the reserved quantity.
+     *
+     * @param sku      the SKU of the product
+     * @param quantity the quantity to take out of the stock
+     * @return the number of updated rows, 0 on a shortfall
+     */
+    @Modifying
+    @Query("update Product p set p.inStock = case when p.quantity > :quantity then true else false end, " +
+            "p.quantity = p.quantity - :quantity, p.updated = local datetime " +
+            "where p.sku = :sku and p.quantity >= :quantity")
+    int applyStockDelta(@Param("sku") String sku, @Param("quantity") int quantity);
 
+    @Query("select p.id from Product p where p.attachmentPhoto.contentHash = :contentHash")
+    List<Long> findIdsByAttachmentPhotoContentHash(@Param("contentHash") String contentHash);
 }
@@ -0,0 +1,44 @@
+package gr.eshop.marios.EshopApp.repository;
+
+import gr.eshop.marios.EshopApp.authentication.RefreshTokenPrincipal;
+import gr.eshop.marios.EshopApp.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Selects a refresh token together with what is needed to issue an access token to its user.
+     *
+     * @param tokenHash the SHA-256 hash of the token
+     * @return the token and its user, if the token exists
+     */
+    @Query("SELECT new gr.eshop.marios.EshopApp.authentication.RefreshTokenPrincipal(t.id, t.expiresAt, u.id, u.uuid, "
+            + "u.username, u.role, COALESCE(u.isActive, true), c.firstname, a.firstname) "
+            + "FROM RefreshToken t JOIN t.user u LEFT JOIN u.customer c LEFT JOIN u.adminUser a "
+            + "WHERE t.tokenHash = :tokenHash")
+    Optional<RefreshTokenPrincipal> findPrincipalByTokenHash(@Param("tokenHash") byte[] tokenHash);
+
+    /**
+     * Deletes a refresh token; of two concurrent deletes of the same token only one counts a row.
+     *
+     * @param id the id of the token
+     * @return the number of deleted tokens
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.id = :id")
+    int deleteTokenById(@Param("id") Long id);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,9 +1,12 @@
 package gr.eshop.marios.EshopApp.repository;
 
+import gr.eshop.marios.EshopApp.authentication.AppUserDetails;
 import gr.eshop.marios.EshopApp.core.enums.Role;
 import gr.eshop.marios.EshopApp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
@@ -16,6 +19,18 @@ public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificat
     Optional<User> findByIsActive(Boolean isActive);
     Optional<User> findByUsername(String username);
 
+    /**
+     * Selects the security-relevant columns of a user and the first name of its customer or admin
+     * in one query, without loading the entity and its customer and admin associations.
+     *
+     * @param username the username
+     * @return the user details, if the user exists
+     */
+    @Query("SELECT new gr.eshop.marios.EshopApp.authentication.AppUserDetails(u.id, u.uuid, u.username, u.password, "
+            + "u.role, COALESCE(u.isActive, true), c.firstname, a.firstname) "
+            + "FROM User u LEFT JOIN u.customer c LEFT JOIN u.adminUser a WHERE u.username = :username")
+    Optional<AppUserDetails> findUserDetailsByUsername(@Param("username") String username);
+
 
 
 }
@@ -3,17 +3,23 @@ package gr.eshop.marios.EshopApp.rest;
 
 import gr.eshop.marios.EshopApp.authentication.AuthenticationService;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.eshop.marios.EshopApp.core.exceptions.AppTooManyRequestsException;
+import gr.eshop.marios.EshopApp.core.exceptions.ValidationException;
 import gr.eshop.marios.EshopApp.dto.AuthenticationRequestDTO;
 import gr.eshop.marios.EshopApp.dto.AuthenticationResponseDTO;
+import gr.eshop.marios.EshopApp.dto.RefreshTokenRequestDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -43,23 +49,52 @@ public class AuthRestController {
                             responseCode = "400",
                             description = "Invalid authentication request",
                             content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "429",
+                            description = "Too many login attempts, retry after the Retry-After header",
+                            content = @Content
                     )
             }
     )
     @PostMapping("/authenticate")
-    public ResponseEntity<AuthenticationResponseDTO> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO)
-            throws AppObjectNotAuthorizedException {
-        AuthenticationResponseDTO authenticationResponseDTO = authenticationService.authenticate(authenticationRequestDTO);
+    public ResponseEntity<AuthenticationResponseDTO> authenticate(@RequestBody AuthenticationRequestDTO authenticationRequestDTO,
+                                                                  HttpServletRequest request)
+            throws AppObjectNotAuthorizedException, AppTooManyRequestsException {
+        AuthenticationResponseDTO authenticationResponseDTO =
+                authenticationService.authenticate(authenticationRequestDTO, request.getRemoteAddr());
         LOGGER.info("User authenticated");
         return new ResponseEntity<>(authenticationResponseDTO, HttpStatus.OK);
     }
 
-//    @PostMapping("/refreshToken")
-//    public ResponseEntity<AuthenticationResponseDTO> refreshToken(@RequestBody AuthenticationRequestDTO authenticationRequestDTO)
-//            throws AppObjectNotAuthorizedException {
-//        AuthenticationResponseDTO authenticationResponseDTO = authenticationService.authenticate(authenticationRequestDTO);
-//        LOGGER.info("User authenticated");
-//        return new ResponseEntity<>(authenticationResponseDTO, HttpStatus.OK);
-//    }
+    @Operation(
+            summary = "Exchange a refresh token for a new authentication token and refresh token",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Token refreshed successfully",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = AuthenticationResponseDTO.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "403",
+                            description = "Invalid, used or expired refresh token",
+                            content = @Content
+                    )
+            }
+    )
+    @PostMapping("/refreshToken")
+    public ResponseEntity<AuthenticationResponseDTO> refreshToken(@Valid @RequestBody RefreshTokenRequestDTO refreshTokenRequestDTO,
+                                                                  BindingResult bindingResult)
+            throws ValidationException, AppObjectNotAuthorizedException {
+        if (bindingResult.hasErrors()) {
+            throw new ValidationException(bindingResult);
+        }
+        AuthenticationResponseDTO authenticationResponseDTO = authenticationService.refresh(refreshTokenRequestDTO);
+        LOGGER.info("Token refreshed");
+        return new ResponseEntity<>(authenticationResponseDTO, HttpStatus.OK);
+    }
 
 }
@@ -0,0 +1,38 @@
+package gr.eshop.marios.EshopApp.rest;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotFoundException;
+import gr.eshop.marios.EshopApp.storage.ImageServer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+public class ImageRestController {
+
+    private final ImageServer imageServer;
+
+    @Operation(
+            summary = "Get a product image or one of its variants",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Image returned", content = @Content(mediaType = "image/*")),
+                    @ApiResponse(responseCode = "206", description = "Requested byte range returned", content = @Content(mediaType = "image/*")),
+                    @ApiResponse(responseCode = "304", description = "Cached copy is still current"),
+                    @ApiResponse(responseCode = "404", description = "Image not found", content = @Content(mediaType = "application/json")),
+                    @ApiResponse(responseCode = "416", description = "Requested byte range not satisfiable")
+            }
+    )
+    @GetMapping("/uploads/{fileName}")
+    public void getImage(@PathVariable String fileName, HttpServletRequest request, HttpServletResponse response)
+            throws AppObjectNotFoundException, IOException {
+        imageServer.serve(fileName, request, response);
+    }
+}
@@ -1,6 +1,7 @@
 package gr.eshop.marios.EshopApp.rest;
 
 import gr.eshop.marios.EshopApp.core.exceptions.*;
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
 import gr.eshop.marios.EshopApp.dto.*;
 
 import gr.eshop.marios.EshopApp.repository.OrderRepository;
@@ -20,11 +21,10 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 
-import java.util.List;
-import java.util.Set;
 
 
 @RestController
@@ -67,32 +67,32 @@ public class OrderRestController {
     }
 
     @Operation(
-            summary = "Get all orders for a customer",
+            summary = "Get the order history of a customer, newest first",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Orders retrieved successfully",
                             content = @Content(
                                     mediaType = "application/json",
-                                    schema = @Schema(implementation = Set.class)
+                                    schema = @Schema(implementation = Paginated.class)
                             )
                     )
             }
     )
     @PostMapping("/all")
-    public ResponseEntity<List<OrderReadOnlyDTO>> getOrders(
+    public ResponseEntity<Paginated<OrderReadOnlyDTO>> getOrders(
             @Valid @RequestBody UuidRequestDTO dto,
-            BindingResult bindingResult) throws AppObjectInvalidArgumentException, AppObjectNotFoundException, ValidationException,
-            AppObjectAlreadyExists, AppServerException {
+            BindingResult bindingResult,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) throws AppObjectNotFoundException, ValidationException {
         if (bindingResult.hasErrors()) {
             throw new ValidationException(bindingResult);
         }
 
-        String uuid = dto.getUuid();
-
-        List<OrderReadOnlyDTO> orderReadOnlyDTO = orderService.getAllOrders(uuid);
+        Paginated<OrderReadOnlyDTO> orders = orderService.getOrderHistory(dto.getUuid(), page, size, after);
 
-        return new ResponseEntity<>(orderReadOnlyDTO, HttpStatus.OK);
+        return new ResponseEntity<>(orders, HttpStatus.OK);
     }
 
     @Operation(
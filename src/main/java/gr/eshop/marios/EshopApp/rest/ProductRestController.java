@@ -7,6 +7,8 @@ import gr.eshop.marios.EshopApp.dto.ProductInsertDTO;
 import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
 import gr.eshop.marios.EshopApp.dto.ProductUpdateDTO;
 import gr.eshop.marios.EshopApp.service.ProductServiceImpl;
+import gr.eshop.marios.EshopApp.storage.ImageStorage;
+import gr.eshop.marios.EshopApp.storage.StagedImage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -30,6 +32,7 @@ import java.util.Map;
 public class ProductRestController { //todo
 
     private final ProductServiceImpl productService;
+    private final ImageStorage imageStorage;
     private static final Logger LOGGER = LoggerFactory.getLogger(ProductRestController.class);
 
 
@@ -54,13 +57,18 @@ public class ProductRestController { //todo
             @RequestPart("photoProduct") MultipartFile photoProduct) {
         ObjectMapper objectMapper = new ObjectMapper();
         ProductInsertDTO productInsertDTO;
+        StagedImage image = null;
         try {
             productInsertDTO = objectMapper.readValue(productJson, ProductInsertDTO.class);
-            productService.saveProduct(productInsertDTO, photoProduct);
+            // streamed to disk before the transaction starts, moved into place after it commits
+            image = imageStorage.stage(photoProduct);
+            productService.saveProduct(productInsertDTO, image);
         } catch (Exception e) {
             LOGGER.error("Error processing product:", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", "Error saving product"));
+        } finally {
+            imageStorage.discard(image);
         }
 
         return ResponseEntity.ok(Map.of("message", "Product saved successfully!"));
@@ -87,13 +95,18 @@ public class ProductRestController { //todo
             @RequestPart("photoProduct") MultipartFile photoProduct) {
         ObjectMapper objectMapper = new ObjectMapper();
         ProductUpdateDTO productUpdateDTO;
+        StagedImage image = null;
         try {
             productUpdateDTO = objectMapper.readValue(productJson, ProductUpdateDTO.class);
-            productService.updateProduct(productUpdateDTO, photoProduct);
+            // streamed to disk before the transaction starts, moved into place after it commits
+            image = imageStorage.stage(photoProduct);
+            productService.updateProduct(productUpdateDTO, image);
         } catch (Exception e) {
             LOGGER.error("Error processing product:", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", "Error updating product"));
+        } finally {
+            imageStorage.discard(image);
         }
 
         return ResponseEntity.ok(Map.of("message", "Product updated successfully!"));
@@ -120,7 +133,8 @@ public class ProductRestController { //todo
     @PostMapping("/delete")
     public ResponseEntity<ProductReadOnlyDTO> deleteProduct(
             @Valid @RequestBody Long productId,
-            BindingResult bindingResult) throws AppObjectNotFoundException, ValidationException, AppServerException {
+            BindingResult bindingResult) throws AppObjectNotFoundException, ValidationException, AppServerException,
+            AppObjectInvalidArgumentException {
 
         if (bindingResult.hasErrors()) {
             throw new ValidationException(bindingResult);
@@ -4,6 +4,7 @@ import gr.eshop.marios.EshopApp.core.exceptions.*;
 import gr.eshop.marios.EshopApp.core.filters.Paginated;
 import gr.eshop.marios.EshopApp.core.filters.ProductFilters;
 import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.ProductSuggestionDTO;
 import gr.eshop.marios.EshopApp.service.ProductServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -56,6 +57,8 @@ public class ProductsAllRestController {
 
     @Operation(
             summary = "Get products with filters",
+            description = "With eshop.catalog.filter-index.enabled, pages sorted by id or price are served from the "
+                    + "in-memory catalog, which reflects product changes once its background refresh has run",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -141,4 +144,22 @@ public class ProductsAllRestController {
 
     }
 
+    @Operation(
+            summary = "Suggest completions for the search box",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Suggestions retrieved successfully, most popular first",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = List.class))
+                    )
+            }
+    )
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggest(
+            @RequestParam("q") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        return new ResponseEntity<>(productService.getSuggestions(prefix, limit), HttpStatus.OK);
+    }
+
 }
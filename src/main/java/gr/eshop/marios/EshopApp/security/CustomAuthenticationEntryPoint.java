@@ -1,7 +1,6 @@
 package gr.eshop.marios.EshopApp.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import gr.eshop.marios.EshopApp.model.User;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -11,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.AuthenticationEntryPoint;
 
 import java.io.IOException;
@@ -53,8 +53,9 @@ public class CustomAuthenticationEntryPoint implements AuthenticationEntryPoint
         LOGGER.warn("Unauthorized access attempt to: {}", request.getRequestURI());
         // Αν υπάρχει αυθεντικοποιημένος χρήστης στον SecurityContext
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = (authentication != null && authentication.getPrincipal() instanceof User)
-                ? ((User) authentication.getPrincipal()).getUsername()
+        String username = (authentication != null
+                && (authentication.getPrincipal() instanceof UserDetails || authentication.getPrincipal() instanceof JwtPrincipal))
+                ? authentication.getName()
                 : "unknown";
 
         String role = "unknown"; // Προεπιλογή αν δεν υπάρχει ρόλος
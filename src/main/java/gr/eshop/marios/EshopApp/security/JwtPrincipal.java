@@ -0,0 +1,19 @@
+package gr.eshop.marios.EshopApp.security;
+
+import java.security.Principal;
+
+/**
+ * The authenticated user as described by the verified claims of their token, used as the
+ * principal when authorization is stateless and the user is not loaded from the database.
+ *
+ * @param username the subject of the token
+ * @param role     the role claim of the token
+ * @param uuid     the uuid claim of the token, null for tokens issued before it was added
+ */
+public record JwtPrincipal(String username, String role, String uuid) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
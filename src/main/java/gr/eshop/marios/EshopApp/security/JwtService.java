@@ -2,24 +2,41 @@ package gr.eshop.marios.EshopApp.security;
 
 
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies the JWT tokens of the application.
+ * <p>
+ * The signing key and the parser are built once. A verified token is parsed into its
+ * {@link Claims} once as well: the claims are cached under the SHA-256 hash of the token until
+ * the token expires, so the filter, the validity check and the claim lookups of the following
+ * requests carrying the same token skip the Base64 decoding and the HMAC verification.
+ * </p>
+ */
 @Service
-@RequiredArgsConstructor
 public class JwtService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtService.class);
@@ -29,6 +46,35 @@ public class JwtService {
     private String secretKey = "5ce98d378ec88ea09ba8bcd511ef23645f04cc8e70b9134b98723a53c275bbc5";
     private long jwtExpiration = 10_800_000;  // 3 hours in milliseconds
 
+    private final Key signInKey;
+    private final JwtParser parser;
+    private final Cache<String, Claims> verifiedClaims;
+
+    public JwtService(@Value("${eshop.security.jwt.cache-size:10000}") long cacheSize) {
+        this.signInKey = getSignInKey();
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        Date expiration = claims.getExpiration();
+                        if (expiration == null) return 0;
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiration.getTime() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
 
 
     /**
@@ -36,11 +82,13 @@ public class JwtService {
      *
      * @param username the username for which the token is generated
      * @param role the role to be included as a claim in the token
+     * @param uuid the uuid of the user to be included as a claim in the token
      * @return the generated JWT token
      */
-    public String generateToken(String username, String role) {
+    public String generateToken(String username, String role, String uuid) {
         var claims = new HashMap<String, Object>();
         claims.put("role", role);
+        claims.put("uuid", uuid);
         String token = Jwts
                 .builder()
                 .setIssuer("self") // todo
@@ -48,7 +96,7 @@ public class JwtService {
                 .setSubject(username)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
 
         LOGGER.info("Generated token: {}, for username: {}, role: {}", token, username, role);
@@ -56,6 +104,13 @@ public class JwtService {
         return token;
     }
 
+    /**
+     * @return how long an issued token stays valid, in milliseconds
+     */
+    public long getTokenLifetimeMillis() {
+        return jwtExpiration;
+    }
+
     /**
      * Validates a given JWT token against the provided user details.
      *
@@ -64,11 +119,34 @@ public class JwtService {
      * @return true if the token is valid, false otherwise
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String subject = extractSubject(token);
-        final String role = getStringClaim(token, "role");
-        return (subject.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(parseToken(token), userDetails);
     }
 
+    /**
+     * Validates the claims of an already parsed JWT token against the provided user details.
+     *
+     * @param claims the verified claims of the token, as returned by {@link #parseToken(String)}
+     * @param userDetails the user details to match against the token
+     * @return true if the token is valid, false otherwise
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
+    }
+
+    /**
+     * Verifies the signature of the JWT token and returns its claims.
+     * <p>
+     * The claims of a token are verified once and then served from the cache until the token
+     * expires. Expired, malformed and tampered tokens are never cached and always fail with
+     * the exception of the parser, e.g. {@link io.jsonwebtoken.ExpiredJwtException}.
+     * </p>
+     *
+     * @param token the JWT token
+     * @return the verified claims; they are shared and must not be modified
+     */
+    public Claims parseToken(String token) {
+        return verifiedClaims.get(hash(token), key -> parser.parseClaimsJws(token).getBody());
+    }
 
     /**
      * Retrieves a specific claim from the JWT token as a string.
@@ -104,26 +182,6 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
-    /**
-     * Checks whether a JWT token has expired.
-     *
-     * @param token the JWT token
-     * @return true if the token has expired, false otherwise
-     */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    /**
-     * Extracts the expiration date from the JWT token.
-     *
-     * @param token the JWT token
-     * @return the expiration date of the token
-     */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
     /**
      * Extracts all claims from the JWT token.
      *
@@ -131,12 +189,16 @@ public class JwtService {
      * @return the Claims object containing all claims
      */
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseToken(token);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     /**
@@ -81,6 +81,8 @@ public class SecurityConfiguration {
                         .requestMatchers("/api/orders/**").hasAnyAuthority(Role.CUSTOMER_USER.name())
                         .requestMatchers("/api/product/**").hasAnyAuthority(Role.ADMIN_USER.name())
                         .requestMatchers("/api/products/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAnyAuthority(Role.ADMIN_USER.name())
                         .requestMatchers("/**").permitAll()
                 )
                 .sessionManagement((session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)))
@@ -0,0 +1,79 @@
+package gr.eshop.marios.EshopApp.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory list of the users whose tokens must no longer be accepted.
+ * <p>
+ * A token only proves who the user was when it was issued. When a user is deleted or their
+ * credentials change, the tokens issued until that moment are revoked here, and the
+ * {@link gr.eshop.marios.EshopApp.authentication.JwtAuthenticationFilter} rejects them without
+ * asking the database. JWT issue times have a resolution of one second, so a token issued in the
+ * same second as the revocation is rejected too. An entry is dropped once every token it could
+ * match has expired anyway. The list lives in one JVM: with several instances of the application
+ * the revocations must be shared, or stateless authentication left disabled.
+ * </p>
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private final JwtService jwtService;
+    private final Map<String, Long> revokedAtByUsername = new ConcurrentHashMap<>();
+
+    public TokenRevocationList(JwtService jwtService) {
+        this.jwtService = jwtService;
+    }
+
+    /**
+     * Revokes every token issued to the user until now, and again once the current transaction
+     * has committed: until then a login still sees the old credentials and could be issued a
+     * token after the first revocation.
+     *
+     * @param username the subject of the tokens to revoke
+     */
+    public void revoke(String username) {
+        revokedAtByUsername.put(username, System.currentTimeMillis());
+        LOGGER.info("Revoked the tokens of user {}", username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revokedAtByUsername.put(username, System.currentTimeMillis());
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks whether a token has been revoked.
+     *
+     * @param username the subject of the token
+     * @param issuedAt the issue time of the token, null if it has none
+     * @return true if the token was issued before its user was revoked
+     */
+    public boolean isRevoked(String username, Date issuedAt) {
+        Long revokedAt = revokedAtByUsername.get(username);
+        if (revokedAt == null) return false;
+        return issuedAt == null || issuedAt.getTime() <= revokedAt;
+    }
+
+    /**
+     * Drops the revocations older than the lifetime of a token.
+     */
+    @Scheduled(fixedDelayString = "${eshop.security.revocation.prune-interval-ms:600000}")
+    public void prune() {
+        long expiredBefore = System.currentTimeMillis() - jwtService.getTokenLifetimeMillis();
+        revokedAtByUsername.values().removeIf(revokedAt -> revokedAt < expiredBefore);
+    }
+}
@@ -1,11 +1,13 @@
 package gr.eshop.marios.EshopApp.service;
 
 
+import gr.eshop.marios.EshopApp.authentication.CustomUserDetailsService;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectAlreadyExists;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotFoundException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppServerException;
 import gr.eshop.marios.EshopApp.core.filters.CustomerFilters;
+import gr.eshop.marios.EshopApp.core.filters.KeysetPagination;
 import gr.eshop.marios.EshopApp.core.filters.Paginated;
 import gr.eshop.marios.EshopApp.core.specifications.CustomerSpecification;
 import gr.eshop.marios.EshopApp.dto.*;
@@ -13,6 +15,7 @@ import gr.eshop.marios.EshopApp.mapper.Mapper;
 import gr.eshop.marios.EshopApp.model.Customer;
 import gr.eshop.marios.EshopApp.model.CustomerInfo;
 import gr.eshop.marios.EshopApp.model.PaymentInfo;
+import gr.eshop.marios.EshopApp.model.User;
 import gr.eshop.marios.EshopApp.model.static_data.Region;
 import gr.eshop.marios.EshopApp.repository.*;
 import jakarta.transaction.Transactional;
@@ -43,6 +46,7 @@ public class CustomerServiceImpl implements ICustomerService {
     private final Mapper mapper;
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
+    private final CustomUserDetailsService userDetailsService;
 
 
     /**
@@ -60,11 +64,11 @@ public class CustomerServiceImpl implements ICustomerService {
     public CustomerReadOnlyDTO saveCustomer(CustomerInsertDTO dto)
             throws AppServerException, AppObjectAlreadyExists, AppObjectNotFoundException, AppObjectInvalidArgumentException{
 
-        if (userRepository.findByUuid(dto.getUserUuid()).isEmpty()) {
+        User user = userRepository.findByUuid(dto.getUserUuid()).orElseThrow(() -> {
             LOGGER.error("User with uuid {} not found", dto.getUserUuid());
-            throw new AppObjectNotFoundException("User", "User with uuid: " + dto.getUserUuid() + " not found");
-        }
-        LOGGER.info("User with uuid {} found", userRepository.findByUuid(dto.getUserUuid()).get().getUsername());
+            return new AppObjectNotFoundException("User", "User with uuid: " + dto.getUserUuid() + " not found");
+        });
+        LOGGER.info("User with uuid {} found", user.getUsername());
         if (customerRepository.findByUserUuid(dto.getUserUuid()).isPresent()) {
             LOGGER.error("User with uuid {} has already a customer account", dto.getUserUuid());
             throw new AppObjectAlreadyExists("User", "User with uuid: " + dto.getUserUuid() + " has already a customer account");
@@ -74,6 +78,7 @@ public class CustomerServiceImpl implements ICustomerService {
         LOGGER.info("Entering saveCustomer with customer: {}", customer);
 
         Customer savedCustomer = customerRepository.save(customer);
+        userDetailsService.evict(user.getUsername());
         LOGGER.info("Entering saveCustomer with customer: {}", customer);
         CustomerReadOnlyDTO customerReadOnlyDTO = mapper.mapToCustomerReadOnlyDTO(savedCustomer);
         LOGGER.info("Customer saved successfully with Uuid: {}", customerReadOnlyDTO.getUuid());
@@ -100,6 +105,7 @@ public class CustomerServiceImpl implements ICustomerService {
         customer.setFirstname(dto.getFirstname());
         customer.setLastname(dto.getLastname());
         Customer updatedCustomer = customerRepository.save(customer);
+        userDetailsService.evict(customer.getUser().getUsername());
         return mapper.mapToCustomerReadOnlyDTO(updatedCustomer);
     }
 
@@ -120,6 +126,7 @@ public class CustomerServiceImpl implements ICustomerService {
 
         CustomerReadOnlyDTO dto = mapper.mapToCustomerReadOnlyDTO(customer);
         customerRepository.delete(customer);
+        userDetailsService.evict(customer.getUser().getUsername());
         LOGGER.info("Customer deleted successfully with UUID: {}", dto.getUuid());
         return dto;
     }
@@ -127,6 +134,9 @@ public class CustomerServiceImpl implements ICustomerService {
 
     @Override
     public Paginated<CustomerReadOnlyDTO> getCustomersFilteredPaginated(CustomerFilters filters) {
+        if (filters.isKeysetPaging()) {
+            return KeysetPagination.fetch(customerRepository, getSpecsFromFilters(filters), filters, mapper::mapToCustomerReadOnlyDTO);
+        }
         var filtered = customerRepository.findAll(getSpecsFromFilters(filters), filters.getPageable());
         return new Paginated<>(filtered.map(mapper::mapToCustomerReadOnlyDTO));
     }
@@ -4,6 +4,7 @@ import gr.eshop.marios.EshopApp.core.exceptions.AppObjectAlreadyExists;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotFoundException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppServerException;
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
 import gr.eshop.marios.EshopApp.dto.OrderInsertDTO;
 import gr.eshop.marios.EshopApp.dto.OrderReadOnlyDTO;
 
@@ -15,4 +16,6 @@ public interface IOrderService {
     OrderReadOnlyDTO saveOrderToCustomer(OrderInsertDTO dto ) throws AppObjectNotFoundException, AppServerException, AppObjectAlreadyExists, AppObjectInvalidArgumentException, IOException;
 
     List<OrderReadOnlyDTO> getAllOrders(String customerUuid) throws AppServerException, AppObjectNotFoundException;
+
+    Paginated<OrderReadOnlyDTO> getOrderHistory(String customerUuid, int page, int size, String after) throws AppObjectNotFoundException;
 }
@@ -8,22 +8,24 @@ import gr.eshop.marios.EshopApp.core.filters.Paginated;
 import gr.eshop.marios.EshopApp.core.filters.ProductFilters;
 import gr.eshop.marios.EshopApp.dto.ProductInsertDTO;
 import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.ProductSuggestionDTO;
 import gr.eshop.marios.EshopApp.dto.ProductUpdateDTO;
+import gr.eshop.marios.EshopApp.storage.StagedImage;
 import org.springframework.data.domain.Page;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.util.List;
 
 public interface IProductService {
 
-    ProductReadOnlyDTO saveProduct(ProductInsertDTO dto, MultipartFile productImage) throws AppServerException, AppObjectAlreadyExists, AppObjectInvalidArgumentException, IOException;
-    ProductReadOnlyDTO updateProduct(ProductUpdateDTO dto, MultipartFile productImage) throws AppServerException, AppObjectNotFoundException, IOException;
-    ProductReadOnlyDTO deleteProduct(Long id) throws AppServerException, AppObjectNotFoundException;
+    ProductReadOnlyDTO saveProduct(ProductInsertDTO dto, StagedImage productImage) throws AppServerException, AppObjectAlreadyExists, AppObjectInvalidArgumentException;
+    ProductReadOnlyDTO updateProduct(ProductUpdateDTO dto, StagedImage productImage) throws AppServerException, AppObjectNotFoundException,
+            AppObjectInvalidArgumentException;
+    ProductReadOnlyDTO deleteProduct(Long id) throws AppServerException, AppObjectNotFoundException, AppObjectInvalidArgumentException;
     Paginated<ProductReadOnlyDTO> getProductFilteredPaginated(ProductFilters filters);
     Page<ProductReadOnlyDTO> getPaginatedProducts(int page, int size) ;
     Page<ProductReadOnlyDTO> getPaginatedProducts(int page, int size, String sortBy, String sortDirection);
     List<ProductReadOnlyDTO> getAllProductsList() throws AppObjectNotFoundException;
+    List<ProductSuggestionDTO> getSuggestions(String prefix, int limit);
 
 
     ProductReadOnlyDTO getProductById(Long id) throws AppObjectNotFoundException;
@@ -1,13 +1,16 @@
 package gr.eshop.marios.EshopApp.service;
 
+import gr.eshop.marios.EshopApp.catalog.ProductChangedEvent;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectAlreadyExists;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotFoundException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppServerException;
-import gr.eshop.marios.EshopApp.dto.CustomerReadOnlyDTO;
+import gr.eshop.marios.EshopApp.core.filters.KeysetCursor;
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
 import gr.eshop.marios.EshopApp.dto.OrderInsertDTO;
 import gr.eshop.marios.EshopApp.dto.OrderItemInsertDTO;
 import gr.eshop.marios.EshopApp.dto.OrderReadOnlyDTO;
+import gr.eshop.marios.EshopApp.inventory.InventoryLedger;
 import gr.eshop.marios.EshopApp.mapper.Mapper;
 import gr.eshop.marios.EshopApp.model.Customer;
 import gr.eshop.marios.EshopApp.model.Order;
@@ -22,6 +25,13 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.format.DateTimeFormatter;
@@ -33,11 +43,14 @@ import java.util.stream.Collectors;
 public class OrderServiceImpl implements IOrderService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OrderServiceImpl.class);
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 10;
     private final OrderRepository orderRepository;
     private final CustomerRepository customerRepository;
     private final OrderItemRepository orderItemRepository;
     private final Mapper mapper;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<InventoryLedger> inventoryLedger;
 
     /**
      * Saves an order for a specific customer.
@@ -64,51 +77,104 @@ public class OrderServiceImpl implements IOrderService {
         Customer customer = customerRepository.findByUuid(dto.getCustomerUuid())
                 .orElseThrow(() -> new AppObjectNotFoundException("Customer","Customer not found with Uuid: "
                         + dto.getCustomerUuid() + " not found"));
-        Order order = mapper.mapToOrder(dto);
+        Map<String, Product> productsBySku = resolveProductsBySku(dto.getOrderItems());
+        Order order = mapper.mapToOrder(dto, productsBySku);
 
+        boolean stockApplied = updateProductAfterPurchase(dto.getOrderItems(), productsBySku);
         for (OrderItem orderItem : order.getAllOrderItems()) {
-            if(productRepository.findBySku(orderItem.getSku()).isEmpty()) {
-                throw new AppObjectNotFoundException("Product","Product with sku: " + orderItem.getSku() + " not found");
-            }
             orderItem.setOrder(order); // Σύνδεση με το Order
+            orderItem.setStockApplied(stockApplied);
         }
         Order savedOrder = orderRepository.save(order);
-        updateProductAfterPurchase(dto.getOrderItems());
 
         return mapper.mapToReadOnlyOrder(savedOrder);
     }
 
+    /**
+     * Loads all the products of an order with a single query.
+     * <p>
+     * The SKUs of the order items are resolved with one {@code IN} query into a SKU to
+     * {@link Product} map, which is then shared by the order mapping and the stock update.
+     * </p>
+     *
+     * @param orderItemInsertDTOS the ordered items.
+     * @return the ordered products keyed by SKU.
+     * @throws AppObjectNotFoundException if any SKU does not match a product.
+     */
+    private Map<String, Product> resolveProductsBySku(List<OrderItemInsertDTO> orderItemInsertDTOS)
+            throws AppObjectNotFoundException {
+        Set<String> skus = orderItemInsertDTOS.stream()
+                .map(OrderItemInsertDTO::getSku)
+                .collect(Collectors.toSet());
+        Map<String, Product> productsBySku = productRepository.findBySkuIn(skus).stream()
+                .collect(Collectors.toMap(Product::getSku, product -> product));
+        for (String sku : skus) {
+            if (!productsBySku.containsKey(sku)) {
+                throw new AppObjectNotFoundException("Product","Product with sku: " + sku + " not found");
+            }
+        }
+        return productsBySku;
+    }
+
     /**
      * Updates the stock levels of products after a purchase.
      * <p>
-     * This method adjusts the stock levels of products based on the quantities purchased in the order.
-     * It ensures that stock levels cannot be negative.
+     * The purchased quantities are summed per SKU and each SKU is decremented with one
+     * conditional UPDATE ({@code quantity >= ?}), in SKU order so that concurrent orders
+     * lock the product rows in the same order. If any product does not have enough stock
+     * the whole order is rolled back.
+     * </p>
+     * <p>
+     * When the {@link InventoryLedger} is enabled the products are not touched here: the
+     * quantities are only reserved on the ledger, and the order items are journaled for the
+     * ledger to apply in batches.
      * </p>
      *
      * @param orderItemInsertDTOS a list of {@link OrderItemInsertDTO} containing the purchased product details.
+     * @param productsBySku the purchased products, already resolved by SKU.
+     * @return true if the stock was updated, false if it was only reserved on the inventory ledger.
      * @throws AppServerException if a server error occurs during the operation.
      * @throws AppObjectNotFoundException if any product is not found.
-     * @throws AppObjectInvalidArgumentException if the resulting stock level for any product is negative.
+     * @throws AppObjectInvalidArgumentException if a quantity is not positive or a product does not have enough stock.
      * @throws IOException if an input/output error occurs.
      */
     @Transactional
-    public void updateProductAfterPurchase (List<OrderItemInsertDTO> orderItemInsertDTOS) throws AppServerException,
-            AppObjectNotFoundException ,AppObjectAlreadyExists, AppObjectInvalidArgumentException, IOException {
+    public boolean updateProductAfterPurchase (List<OrderItemInsertDTO> orderItemInsertDTOS, Map<String, Product> productsBySku)
+            throws AppServerException, AppObjectNotFoundException ,AppObjectAlreadyExists, AppObjectInvalidArgumentException, IOException {
+        Map<String, Integer> quantitiesBySku = new TreeMap<>();
         for (OrderItemInsertDTO item : orderItemInsertDTOS) {
-            Product product = productRepository.findBySku(item.getSku()).
-                    orElseThrow(() -> new AppObjectNotFoundException("Product","Product not found with Sku: " + item.getSku()));
-            product.setQuantity(product.getQuantity() - item.getQuantity());
-            product.setInStock(product.isInStock());
-            if (product.getQuantity() < 0) {
-                throw new AppObjectInvalidArgumentException("Product", "Product stock cannot be negative for SKU: " + item.getSku());
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new AppObjectInvalidArgumentException("Product", "Ordered quantity must be positive for SKU: " + item.getSku());
             }
-            productRepository.save(product);
+            quantitiesBySku.merge(item.getSku(), item.getQuantity(), Integer::sum);
+        }
 
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        if (ledger != null) {
+            ledger.reserve(quantitiesBySku);
+            return false;
         }
+
+        Set<Long> purchasedProductIds = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : quantitiesBySku.entrySet()) {
+            Product product = productsBySku.get(entry.getKey());
+            if (product == null) {
+                throw new AppObjectNotFoundException("Product","Product not found with Sku: " + entry.getKey());
+            }
+            if (productRepository.decrementStock(entry.getKey(), entry.getValue()) == 0) {
+                throw new AppObjectInvalidArgumentException("Product", "Product stock cannot be negative for SKU: " + entry.getKey());
+            }
+            purchasedProductIds.add(product.getId());
+        }
+        eventPublisher.publishEvent(ProductChangedEvent.of(purchasedProductIds));
+        return true;
     }
 
     /**
-     * Retrieves all orders associated with a specific customer by their UUID.
+     * Retrieves all orders associated with a specific customer by their UUID, newest first.
+     * <p>
+     * The orders are loaded with their items in one query, without loading the customer.
+     * </p>
      *
      * @param customerUuid the unique identifier of the customer whose orders are to be retrieved
      * @return a list of {@link OrderReadOnlyDTO} objects representing the orders associated with the customer
@@ -117,14 +183,65 @@ public class OrderServiceImpl implements IOrderService {
      */
     @Override
     public List<OrderReadOnlyDTO> getAllOrders(String customerUuid) throws AppServerException, AppObjectNotFoundException {
-        Customer customer = customerRepository.findByUuid(customerUuid)
-                .orElseThrow(() -> new AppObjectNotFoundException("Customer", "Customer with Uuid: " + customerUuid + " not found"));
-        LOGGER.info("Customer  {} was found", customer);
+        requireCustomer(customerUuid);
+        return orderRepository.findWithItemsByCustomerUuid(customerUuid).stream()
+                .map(mapper::mapToReadOnlyOrder)
+                .toList();
+    }
+
+    /**
+     * Retrieves one page of a customer's order history, newest first.
+     * <p>
+     * Only the ids of the requested page are selected first, then those orders are loaded
+     * with their items in a single query; the customer itself is never loaded. With an
+     * {@code after} cursor the page is located with keyset pagination on the order id and
+     * {@code page} is ignored. Every page but the last returns the cursor of the next one.
+     * </p>
+     *
+     * @param customerUuid the unique identifier of the customer
+     * @param page the page number, used when there is no cursor
+     * @param size the page size
+     * @param after the cursor returned with the previous page, or null
+     * @return a {@link Paginated} page of {@link OrderReadOnlyDTO}s
+     * @throws AppObjectNotFoundException if the customer with the specified UUID is not found
+     */
+    @Override
+    public Paginated<OrderReadOnlyDTO> getOrderHistory(String customerUuid, int page, int size, String after)
+            throws AppObjectNotFoundException {
+        requireCustomer(customerUuid);
+        int pageSize = size <= 0 ? DEFAULT_HISTORY_PAGE_SIZE : size;
 
+        if (after == null || after.isBlank()) {
+            Page<Long> ids = orderRepository.findIdsByCustomerUuid(customerUuid, PageRequest.of(Math.max(page, 0), pageSize));
+            Paginated<OrderReadOnlyDTO> orders =
+                    new Paginated<>(new PageImpl<>(loadOrders(ids.getContent()), ids.getPageable(), ids.getTotalElements()));
+            if (ids.hasNext()) orders.setNextCursor(cursorAfter(ids.getContent()));
+            return orders;
+        }
 
-        CustomerReadOnlyDTO customerDto = mapper.mapToCustomerReadOnlyDTO(customer);
-        List<OrderReadOnlyDTO> orderReadOnlyDTOS = customerDto.getOrdersReadOnlyDTOs();
-        return orderReadOnlyDTOS;
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        cursor.requireSort("id", Sort.Direction.DESC);
+        List<Long> ids = orderRepository.findIdsByCustomerUuidBefore(customerUuid, cursor.id(), Limit.of(pageSize + 1));
+        boolean hasNext = ids.size() > pageSize;
+        List<Long> pageIds = hasNext ? ids.subList(0, pageSize) : ids;
+        return new Paginated<>(loadOrders(pageIds), pageSize, hasNext ? cursorAfter(pageIds) : null, -1);
+    }
+
+    private static String cursorAfter(List<Long> pageIds) {
+        return new KeysetCursor("id", Sort.Direction.DESC, null, pageIds.get(pageIds.size() - 1)).encode();
+    }
+
+    private List<OrderReadOnlyDTO> loadOrders(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        return orderRepository.findWithItemsByIdIn(ids).stream()
+                .map(mapper::mapToReadOnlyOrder)
+                .toList();
+    }
+
+    private void requireCustomer(String customerUuid) throws AppObjectNotFoundException {
+        if (!customerRepository.existsByUuid(customerUuid)) {
+            throw new AppObjectNotFoundException("Customer", "Customer with Uuid: " + customerUuid + " not found");
+        }
     }
 
 /**
@@ -1,40 +1,57 @@
 package gr.eshop.marios.EshopApp.service;
 
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.catalog.ProductCatalogSnapshot;
+import gr.eshop.marios.EshopApp.catalog.ProductChangedEvent;
+import gr.eshop.marios.EshopApp.catalog.ProductSearchIndex;
+import gr.eshop.marios.EshopApp.catalog.SuggestionTrie;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectAlreadyExists;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotFoundException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppServerException;
+import gr.eshop.marios.EshopApp.core.filters.KeysetPagination;
 import gr.eshop.marios.EshopApp.core.filters.Paginated;
 import gr.eshop.marios.EshopApp.core.filters.ProductFilters;
 import gr.eshop.marios.EshopApp.core.specifications.ProductSpecification;
+import gr.eshop.marios.EshopApp.dto.ProductFacetCount;
 import gr.eshop.marios.EshopApp.dto.ProductInsertDTO;
+import gr.eshop.marios.EshopApp.dto.ProductProjection;
 import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.ProductSuggestionDTO;
 import gr.eshop.marios.EshopApp.dto.ProductUpdateDTO;
+import gr.eshop.marios.EshopApp.inventory.InventoryLedger;
 import gr.eshop.marios.EshopApp.mapper.Mapper;
 import gr.eshop.marios.EshopApp.model.AttachmentPhoto;
 import gr.eshop.marios.EshopApp.model.Product;
 import gr.eshop.marios.EshopApp.repository.AttachmentPhotoRepository;
+import gr.eshop.marios.EshopApp.repository.OrderItemRepository;
 import gr.eshop.marios.EshopApp.repository.ProductRepository;
+import gr.eshop.marios.EshopApp.storage.ImageCache;
+import gr.eshop.marios.EshopApp.storage.ImageStorage;
+import gr.eshop.marios.EshopApp.storage.ImageStoredEvent;
+import gr.eshop.marios.EshopApp.storage.StagedImage;
+import io.micrometer.common.util.StringUtils;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -43,6 +60,21 @@ public class ProductServiceImpl implements IProductService {
     private final Mapper mapper;
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomerServiceImpl.class);
     private final AttachmentPhotoRepository attachmentPhotoRepository;
+    private final ProductCatalog productCatalog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageStorage imageStorage;
+    private final ImageCache imageCache;
+    private final OrderItemRepository orderItemRepository;
+    private final ObjectProvider<InventoryLedger> inventoryLedger;
+    private static final String FACET_IN_STOCK = "inStock";
+    private static final String FACET_OUT_OF_STOCK = "outOfStock";
+    private static final Set<String> INDEXED_SORTS = Set.of("id", "price");
+
+    @Value("${eshop.catalog.filter-index.enabled:false}")
+    private boolean filterIndexEnabled;
+
+    @Value("${eshop.catalog.search.id-chunk-size:1000}")
+    private int searchIdChunkSize;
 
 /**
  * Saves a new product with its image.
@@ -52,21 +84,20 @@ public class ProductServiceImpl implements IProductService {
  * </p>
  *
  * @param dto          the {@link ProductInsertDTO} containing the product details.
- * @param productImage the {@link MultipartFile} containing the product image.
+ * @param productImage the {@link StagedImage} of the product image, or null.
  * @return a {@link ProductReadOnlyDTO} representing the saved product.
  * @throws AppServerException if a server error occurs.
  * @throws AppObjectAlreadyExists if a product with the same SKU already exists.
  * @throws AppObjectInvalidArgumentException if the input arguments are invalid.
- * @throws IOException if an error occurs while saving the product image.
  */
     @Override
     @Transactional(rollbackOn = Exception.class)
-    public ProductReadOnlyDTO saveProduct(ProductInsertDTO dto, MultipartFile productImage) throws AppServerException, AppObjectAlreadyExists, AppObjectInvalidArgumentException, IOException {
+    public ProductReadOnlyDTO saveProduct(ProductInsertDTO dto, StagedImage productImage) throws AppServerException, AppObjectAlreadyExists, AppObjectInvalidArgumentException {
         if (productRepository.findBySku(dto.getSku()).isPresent()) {
             throw new AppObjectAlreadyExists("Product", "Product with sku: "
                     + dto.getSku() + " already exists");
         }
-        LOGGER.info("Saving photo " + productImage.getName());
+        LOGGER.info("Saving photo " + (productImage == null ? null : productImage.originalFilename()));
         LOGGER.info("Received product: {}", dto);
 
         Product product = mapper.mapToProduct(dto);
@@ -77,40 +108,40 @@ public class ProductServiceImpl implements IProductService {
 
         Product savedProduct = productRepository.save(product);
         LOGGER.info("Saved product: {}", savedProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.of(savedProduct.getId()));
         return mapper.mapToProductReadOnlyDTO(savedProduct);
     }
 
 /**
  * Saves the image for a product.
  * <p>
- * This method handles the file storage for the product's image and creates an {@link AttachmentPhoto}
- * entity to associate with the product.
+ * This method creates an {@link AttachmentPhoto} entity for the staged image and associates it
+ * with the product. The image is stored by the {@link ImageStorage} under the hash of its content,
+ * so a photo uploaded again references the file stored the first time. Its downscaled variants
+ * are derived by the {@link gr.eshop.marios.EshopApp.storage.ImageVariantGenerator} after commit.
  * </p>
  *
  * @param product      the {@link Product} to associate the image with.
- * @param photoProduct the {@link MultipartFile} containing the product image.
+ * @param photoProduct the {@link StagedImage} of the product image, or null.
  * @return the saved {@link AttachmentPhoto}.
- * @throws IOException if an error occurs while saving the image file.
  */
     @Transactional(rollbackOn = Exception.class)
-    public AttachmentPhoto saveProductImage(Product product, MultipartFile photoProduct) throws IOException {
+    public AttachmentPhoto saveProductImage(Product product, StagedImage photoProduct) {
 
         AttachmentPhoto attachment = new AttachmentPhoto();
-        if (photoProduct != null && !photoProduct.isEmpty()) {
+        if (photoProduct != null) {
 
-            String originalFileName = photoProduct.getOriginalFilename();
-            String savedName = UUID.randomUUID() + getFileExtension(originalFileName);
-            String uploadDir = "uploads/";
-            Path filepath = Paths.get(uploadDir + savedName);
-            Files.createDirectories(filepath.getParent());
-            Files.write(filepath, photoProduct.getBytes());
+            String originalFileName = photoProduct.originalFilename();
+            String savedName = imageStorage.store(photoProduct);
+            eventPublisher.publishEvent(new ImageStoredEvent(photoProduct.contentHash(), savedName));
 
 
             attachment.setFilename(originalFileName);
             attachment.setSavedName(savedName);
-            attachment.setFilePath(filepath.toString());
-            attachment.setContentType(photoProduct.getContentType());
-            attachment.setExtension(getFileExtension(originalFileName));
+            attachment.setFilePath(ImageStorage.publicPath(savedName));
+            attachment.setContentType(photoProduct.contentType());
+            attachment.setExtension(photoProduct.extension());
+            attachment.setContentHash(photoProduct.contentHash());
 
 
             product.setAttachmentPhoto(attachment);
@@ -119,45 +150,62 @@ public class ProductServiceImpl implements IProductService {
         return attachment;
     }
 
-    public String getFileExtension(String filename) {
-        if (filename != null && filename.contains(".")) {
-            return filename.substring(filename.lastIndexOf("."));
-        }
-        return "";
+    /**
+     * Deletes an image no longer used by its product and releases its stored file, unless
+     * order items still show it.
+     *
+     * @param photo the {@link AttachmentPhoto} of the image, possibly null.
+     */
+    private void releaseProductImage(AttachmentPhoto photo) {
+        if (photo == null || orderItemRepository.existsByAttachmentPhotoId(photo.getId())) return;
+        imageStorage.release(photo.getContentHash());
+        imageCache.invalidateImage(photo.getContentHash());
+        attachmentPhotoRepository.delete(photo);
     }
 
 /**
  * Updates an existing product with new details and/or an image.
  * <p>
  * This method updates the product's details in the database. If a new image is provided,
- * it replaces the old image.
+ * it replaces the old image, whose reference to the stored file is released; otherwise the
+ * current image is kept.
  * </p>
  *
  * @param dto          the {@link ProductUpdateDTO} containing updated product details.
- * @param productImage the {@link MultipartFile} containing the new product image (optional).
+ * @param productImage the {@link StagedImage} of the new product image (optional).
  * @return a {@link ProductReadOnlyDTO} representing the updated product.
  * @throws AppServerException if a server error occurs.
  * @throws AppObjectNotFoundException if the product with the given ID or SKU is not found.
- * @throws IOException if an error occurs while saving the product image.
+ * @throws AppObjectInvalidArgumentException if the inventory ledger holds more ordered units than the new stock.
  */
     @Override
     @Transactional(rollbackOn = Exception.class)
-    public ProductReadOnlyDTO updateProduct(ProductUpdateDTO dto, MultipartFile productImage) throws AppServerException,
-            AppObjectNotFoundException, IOException {
+    public ProductReadOnlyDTO updateProduct(ProductUpdateDTO dto, StagedImage productImage) throws AppServerException,
+            AppObjectNotFoundException, AppObjectInvalidArgumentException {
         LOGGER.info("Received product: {}", dto);
         if (productRepository.findBySku(dto.getSku()).isEmpty()) {
             throw new AppObjectNotFoundException("Product", "Product with sku: "
                     + dto.getSku() + " not found");
         }
-        if (productRepository.findById(dto.getId()).isEmpty()) {
-            throw new AppObjectNotFoundException("Product", "Product with id: "
-                    + dto.getId() + " not found");
-        }
+        AttachmentPhoto currentPhoto = productRepository.findById(dto.getId())
+                .orElseThrow(() -> new AppObjectNotFoundException("Product", "Product with id: "
+                        + dto.getId() + " not found"))
+                .getAttachmentPhoto();
 
 
         Product product = mapper.mapToUpdateProduct(dto);
-        saveProductImage(product,productImage);
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        if (ledger != null) {
+            ledger.restock(product.getSku(), product.getQuantity());
+        }
+        if (productImage == null) {
+            product.setAttachmentPhoto(currentPhoto);
+        } else {
+            saveProductImage(product, productImage);
+            releaseProductImage(currentPhoto);
+        }
         Product updatedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(updatedProduct.getId()));
         return mapper.mapToProductReadOnlyDTO(updatedProduct);
     }
 
@@ -165,25 +213,35 @@ public class ProductServiceImpl implements IProductService {
  * Deletes a product by its ID.
  * <p>
  * This method removes the product from the database and clears its associations
- * with related entities such as image, brand, and category.
+ * with related entities such as image, brand, and category. The reference of its image
+ * to the stored file is released, unless ordered items still show the image.
  * </p>
  *
  * @param id the ID of the product to delete.
  * @return a {@link ProductReadOnlyDTO} representing the deleted product.
  * @throws AppServerException if a server error occurs.
  * @throws AppObjectNotFoundException if the product with the given ID is not found.
+ * @throws AppObjectInvalidArgumentException if the inventory ledger holds ordered units of the product.
  */
     @Override
     @Transactional(rollbackOn = Exception.class)
-    public ProductReadOnlyDTO deleteProduct(Long id) throws AppServerException, AppObjectNotFoundException {
+    public ProductReadOnlyDTO deleteProduct(Long id) throws AppServerException, AppObjectNotFoundException,
+            AppObjectInvalidArgumentException {
 
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new AppObjectNotFoundException("Product", "Product with id: " + id + " not found"));
+        InventoryLedger ledger = inventoryLedger.getIfAvailable();
+        if (ledger != null) {
+            ledger.restock(product.getSku(), 0);
+        }
         ProductReadOnlyDTO dto = mapper.mapToProductReadOnlyDTO(product);
+        AttachmentPhoto photo = product.getAttachmentPhoto();
         product.setAttachmentPhoto(null);
         product.setBrand(null);
         product.setCategory(null);
         productRepository.delete(product);
+        releaseProductImage(photo);
+        eventPublisher.publishEvent(ProductChangedEvent.of(id));
         return dto;
     }
 
@@ -191,6 +249,19 @@ public class ProductServiceImpl implements IProductService {
  * Retrieves paginated and filtered products.
  * <p>
  * This method applies filters to the product query and returns a paginated list of products.
+ * Only the columns of {@link ProductReadOnlyDTO} are selected, as {@link ProductProjection}s,
+ * so no product entity is loaded into the persistence context.
+ * </p>
+ * <p>
+ * When {@link ProductFilters#getWithFacets()} is set, the brand, category and stock counts of the
+ * filtered products are returned with the page, computed by one extra GROUP BY query.
+ * </p>
+ * <p>
+ * With {@code eshop.catalog.filter-index.enabled}, pages sorted by id or price without a uuid or
+ * id filter are answered from the bitmap and price indexes of the in-memory {@link ProductCatalog}
+ * snapshot instead, facets included, without querying the database. The snapshot catches up with
+ * product changes in the background, so such a page may briefly miss a product just created or
+ * still show it as it was before an edit.
  * </p>
  *
  * @param filters the {@link ProductFilters} containing the criteria for filtering.
@@ -198,15 +269,87 @@ public class ProductServiceImpl implements IProductService {
  */
     @Override
     public Paginated<ProductReadOnlyDTO> getProductFilteredPaginated(ProductFilters filters) {
-        var filtered = productRepository.findAll(getSpecsFromFilters(filters),filters.getPageable());
-        LOGGER.info("Filtered products: {}", filtered);
-        return new Paginated<>(filtered.map(mapper::mapToProductReadOnlyDTO));
+        if (isFilterIndexed(filters)) {
+            ProductCatalogSnapshot snapshot = productCatalog.getSnapshot();
+            BitSet matches = snapshot.filter(filters);
+            Paginated<ProductReadOnlyDTO> paginated = snapshot.getFilteredPage(matches, filters);
+            if (Boolean.TRUE.equals(filters.getWithFacets())) {
+                paginated.setFacets(getFacets(snapshot.facetCounts(matches)));
+            }
+            return paginated;
+        }
+
+        Paginated<ProductReadOnlyDTO> paginated;
+        if (filters.isKeysetPaging()) {
+            paginated = KeysetPagination.fetch(getSpecsFromFilters(filters), filters,
+                    (spec, limit) -> productRepository.findProjections(spec, filters.getKeysetSort(), limit),
+                    productRepository::count, mapper::mapToProductReadOnlyDTO);
+        } else {
+            var filtered = productRepository.findProjections(getSpecsFromFilters(filters),filters.getPageable());
+            LOGGER.info("Filtered products: {}", filtered);
+            paginated = new Paginated<>(filtered.map(mapper::mapToProductReadOnlyDTO));
+        }
+        if (Boolean.TRUE.equals(filters.getWithFacets())) {
+            paginated.setFacets(getFacets(productRepository.findFacetCounts(getSpecsFromFilters(filters))));
+        }
+        return paginated;
+    }
+
+/**
+ * Checks whether the filters can be answered by the {@link ProductCatalog} snapshot.
+ *
+ * @param filters the {@link ProductFilters} of the request.
+ * @return true if the index is enabled, the sort column is the id or the price and there is no uuid or id filter.
+ */
+    private boolean isFilterIndexed(ProductFilters filters) {
+        return filterIndexEnabled
+                && INDEXED_SORTS.contains(filters.getSortBy())
+                && StringUtils.isBlank(filters.getUuid())
+                && StringUtils.isBlank(filters.getId());
+    }
+
+/**
+ * Folds the brand, category and stock status counts into one count map per facet.
+ * <p>
+ * The values of each facet are ordered by descending count, then by name.
+ * </p>
+ *
+ * @param counts the {@link ProductFacetCount} rows of the GROUP BY query.
+ * @return the counts per facet name and facet value.
+ */
+    private Map<String, Map<String, Long>> getFacets(List<ProductFacetCount> counts) {
+        Map<String, Long> brands = new HashMap<>();
+        Map<String, Long> categories = new HashMap<>();
+        Map<String, Long> stock = new LinkedHashMap<>();
+        stock.put(FACET_IN_STOCK, 0L);
+        stock.put(FACET_OUT_OF_STOCK, 0L);
+        for (ProductFacetCount count : counts) {
+            brands.merge(count.getBrandName(), count.getCount(), Long::sum);
+            categories.merge(count.getCategoryName(), count.getCount(), Long::sum);
+            stock.merge(Boolean.TRUE.equals(count.getInStock()) ? FACET_IN_STOCK : FACET_OUT_OF_STOCK,
+                    count.getCount(), Long::sum);
+        }
+
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        facets.put("brand", byDescendingCount(brands));
+        facets.put("category", byDescendingCount(categories));
+        facets.put("stock", stock);
+        return facets;
+    }
+
+    private static Map<String, Long> byDescendingCount(Map<String, Long> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
     }
 
 /**
  * Retrieves paginated products with default sorting.
  * <p>
  * This method returns a paginated list of products sorted by the default field ("id") in ascending order.
+ * The page is served from the in-memory {@link ProductCatalog} snapshot without querying the database.
  * </p>
  *
  * @param page the page number to retrieve.
@@ -217,7 +360,7 @@ public class ProductServiceImpl implements IProductService {
     public Page<ProductReadOnlyDTO> getPaginatedProducts(int page, int size) {
         String defaultSort = "id";
         Pageable pageable = PageRequest.of(page, size, Sort.by(defaultSort).ascending());
-        return productRepository.findAll(pageable).map(mapper::mapToProductReadOnlyDTO);
+        return productCatalog.getSnapshot().getPage(pageable);
     }
 
 
@@ -282,7 +425,8 @@ public class ProductServiceImpl implements IProductService {
 /**
  * Retrieves a list of all products.
  * <p>
- * This method fetches all products from the database and maps them to {@link ProductReadOnlyDTO}.
+ * This method returns the products of the current in-memory {@link ProductCatalog} snapshot,
+ * ordered by id. The database is not queried.
  * </p>
  *
  * @return a {@link List} of {@link ProductReadOnlyDTO}.
@@ -291,18 +435,36 @@ public class ProductServiceImpl implements IProductService {
     @Override
     public List<ProductReadOnlyDTO> getAllProductsList() throws AppObjectNotFoundException {
         LOGGER.info("Getting all products");
-        List<Product> products = productRepository.findAll();
-        List<ProductReadOnlyDTO> productsDTO = new ArrayList<>();
-        productsDTO = productRepository.findAll().stream().map(mapper::mapToProductReadOnlyDTO).toList();
-        return productsDTO;
+        return productCatalog.getSnapshot().getProducts();
     }
 
 
+/**
+ * Suggests completions for the text typed in the search box.
+ * <p>
+ * The suggestions come from the trie of the in-memory {@link ProductCatalog} snapshot and are
+ * ranked by units sold. The database is not queried.
+ * </p>
+ *
+ * @param prefix the text typed so far.
+ * @param limit the maximum number of suggestions, capped at {@link SuggestionTrie#MAX_SUGGESTIONS}.
+ * @return a {@link List} of {@link ProductSuggestionDTO}, most popular first.
+ */
+    @Override
+    public List<ProductSuggestionDTO> getSuggestions(String prefix, int limit) {
+        return productCatalog.getSnapshot().suggest(prefix, Math.min(limit, SuggestionTrie.MAX_SUGGESTIONS)).stream()
+                .map(suggestion -> new ProductSuggestionDTO(suggestion.text(), suggestion.kind().name(), suggestion.productUuid()))
+                .toList();
+    }
+
 /**
  * Builds a dynamic query specification based on provided filters.
  * <p>
  * This method constructs a {@link Specification} for querying products using the criteria provided
- * in the {@link ProductFilters}.
+ * in the {@link ProductFilters}. The name and sku filters are resolved to product ids through the
+ * search index of the {@link ProductCatalog}, so they ignore case and accents and need no table scan.
+ * However many products a search matches, their ids are sent as OR-ed IN lists of at most
+ * {@code id-chunk-size} ids each, so the filter means the same whatever the size of the result.
  * </p>
  *
  * @param filters the {@link ProductFilters} containing the filtering criteria.
@@ -310,14 +472,31 @@ public class ProductServiceImpl implements IProductService {
  */
     private Specification<Product> getSpecsFromFilters(ProductFilters filters) {
         return Specification
-                .where(ProductSpecification.trStringFieldLike("uuid", filters.getUuid()))
+                .where(ProductSpecification.trFetchDetails())
+                .and(ProductSpecification.trStringFieldLike("uuid", filters.getUuid()))
                 .and(ProductSpecification.trStringFieldLike("id",filters.getId()))
-                .and(ProductSpecification.trStringFieldLike("sku",filters.getSku()))
-                .and(ProductSpecification.trStringFieldLike("name",filters.getName()))
+                .and(trIndexedSearch(ProductSearchIndex.Field.SKU, filters.getSku()))
+                .and(trIndexedSearch(ProductSearchIndex.Field.NAME, filters.getName()))
                 .and(ProductSpecification.trProductByBrand(filters.getBrand()))
                 .and(ProductSpecification.trProductByCategory(filters.getCategory()))
                 .and(ProductSpecification.trProductIsActive(filters.getIsActive()))
-                .and(ProductSpecification.trProductIsInStock(filters.getIsInStock()));
+                .and(ProductSpecification.trProductIsInStock(filters.getIsInStock()))
+                .and(ProductSpecification.trProductPriceBetween(filters.getMinPrice(), filters.getMaxPrice()));
 
     }
+
+    private Specification<Product> trIndexedSearch(ProductSearchIndex.Field field, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return ProductSpecification.trProductIdIn(null);
+        }
+        List<Long> ids = productCatalog.getSnapshot().search(field, value).stream().map(ProductReadOnlyDTO::getId).toList();
+        if (ids.size() <= searchIdChunkSize) {
+            return ProductSpecification.trProductIdIn(ids);
+        }
+        List<Specification<Product>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += searchIdChunkSize) {
+            chunks.add(ProductSpecification.trProductIdIn(ids.subList(from, Math.min(from + searchIdChunkSize, ids.size()))));
+        }
+        return Specification.anyOf(chunks);
+    }
 }
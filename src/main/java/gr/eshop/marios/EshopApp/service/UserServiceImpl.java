@@ -1,9 +1,12 @@
 package gr.eshop.marios.EshopApp.service;
 
+import gr.eshop.marios.EshopApp.authentication.CustomUserDetailsService;
+import gr.eshop.marios.EshopApp.authentication.RefreshTokenService;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectAlreadyExists;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotFoundException;
 import gr.eshop.marios.EshopApp.core.exceptions.AppServerException;
+import gr.eshop.marios.EshopApp.core.filters.KeysetPagination;
 import gr.eshop.marios.EshopApp.core.filters.Paginated;
 import gr.eshop.marios.EshopApp.core.filters.UserFilter;
 import gr.eshop.marios.EshopApp.core.specifications.UserSpecification;
@@ -13,6 +16,7 @@ import gr.eshop.marios.EshopApp.dto.UserUpdateDTO;
 import gr.eshop.marios.EshopApp.mapper.Mapper;
 import gr.eshop.marios.EshopApp.model.User;
 import gr.eshop.marios.EshopApp.repository.UserRepository;
+import gr.eshop.marios.EshopApp.security.TokenRevocationList;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.ObjectNotFoundException;
@@ -33,6 +37,9 @@ public class UserServiceImpl implements IUserService {
     private final UserRepository userRepository;
     private final Mapper mapper;
     private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationList tokenRevocationList;
+    private final CustomUserDetailsService userDetailsService;
+    private final RefreshTokenService refreshTokenService;
 
 
 /**
@@ -57,6 +64,7 @@ public class UserServiceImpl implements IUserService {
 
         User user = mapper.mapToUser(dto);
         User savedUser = userRepository.save(user);
+        userDetailsService.evict(savedUser.getUsername());
         return mapper.mapToUserReadOnlyDTO(savedUser);
     }
 
@@ -64,6 +72,7 @@ public class UserServiceImpl implements IUserService {
  * Updates an existing user's information.
  * <p>
  * This method updates the username and password of a user identified by their UUID.
+ * The tokens and refresh tokens issued to the user until now are revoked, since they carry the old credentials.
  * </p>
  *
  * @param dto the {@link UserUpdateDTO} containing the updated user details.
@@ -77,6 +86,10 @@ public class UserServiceImpl implements IUserService {
 
         User user = userRepository.findByUuid(dto.getUuid())
                 .orElseThrow(() -> new AppObjectNotFoundException("User", "User with uuid: " + dto.getUuid() + " not found"));
+        tokenRevocationList.revoke(user.getUsername());
+        refreshTokenService.revokeAll(user.getId());
+        userDetailsService.evict(user.getUsername());
+        userDetailsService.evict(dto.getUsername());
         user.setUsername(dto.getUsername());
         user.setPassword(passwordEncoder.encode(dto.getPassword()));
         userRepository.save(user);
@@ -87,7 +100,8 @@ public class UserServiceImpl implements IUserService {
 /**
  * Deletes a user by their UUID.
  * <p>
- * This method removes the user entity identified by their UUID from the database.
+ * This method removes the user entity identified by their UUID from the database
+ * and revokes the tokens and refresh tokens issued to the user.
  * </p>
  *
  * @param uuid the UUID of the user to delete.
@@ -104,7 +118,10 @@ public class UserServiceImpl implements IUserService {
         User user = userRepository.findByUuid(uuid)
                 .orElseThrow(() -> new AppObjectNotFoundException("User", "User with uuid" + uuid + "not found"));
         UserReadOnlyDTO dto = mapper.mapToUserReadOnlyDTO(user);
+        refreshTokenService.revokeAll(user.getId());
         userRepository.delete(user);
+        tokenRevocationList.revoke(user.getUsername());
+        userDetailsService.evict(user.getUsername());
         return dto;
     }
 
@@ -120,6 +137,9 @@ public class UserServiceImpl implements IUserService {
      */
     @Override
     public Paginated<UserReadOnlyDTO> getUsersFilteredPaginated(UserFilter filters) {
+        if (filters.isKeysetPaging()) {
+            return KeysetPagination.fetch(userRepository, getSpecsFromFilters(filters), filters, mapper::mapToUserReadOnlyDTO);
+        }
         var filtered = userRepository.findAll(getSpecsFromFilters(filters), filters.getPageable());
         return new Paginated<>(filtered.map(mapper::mapToUserReadOnlyDTO));
     }
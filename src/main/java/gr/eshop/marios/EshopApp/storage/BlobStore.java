@@ -0,0 +1,74 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Keeps the bytes of the stored product images and their variants, addressed by key.
+ * <p>
+ * A key is a plain file name, such as the content hash and extension of an image. Content is
+ * written once under a key and never changes afterwards; writes are made from a local file
+ * prepared in {@link #tempDir()}, so a reader either finds the complete content or nothing.
+ * </p>
+ */
+public interface BlobStore {
+
+    /**
+     * Returns the local directory to prepare content in before it is {@link #put(String, Path) put}.
+     *
+     * @return the temporary directory, created if missing
+     * @throws IOException if the directory cannot be created
+     */
+    Path tempDir() throws IOException;
+
+    /**
+     * Stores the content of a file of the {@link #tempDir()} under a key, replacing any content
+     * stored under it. The file is consumed.
+     *
+     * @param key    the key
+     * @param source the file holding the content
+     * @throws IOException if the content cannot be stored
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * @param key the key
+     * @return true if content is stored under the key
+     */
+    boolean exists(String key);
+
+    /**
+     * @param key the key
+     * @return the size of the content, in bytes
+     * @throws IOException if nothing is stored under the key or its size cannot be read
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Opens the content stored under a key for reading.
+     *
+     * @param key the key
+     * @return a stream the caller must close
+     * @throws IOException if nothing is stored under the key or it cannot be read
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Returns the local file of the content stored under a key, for zero-copy transfers.
+     *
+     * @param key the key
+     * @return the file, or empty if the content is not stored in a local file
+     */
+    Optional<Path> localFile(String key);
+
+    /**
+     * Deletes the content stored under a key.
+     *
+     * @param key the key
+     * @return true if content was stored under the key
+     * @throws IOException if the content cannot be deleted
+     */
+    boolean delete(String key) throws IOException;
+}
@@ -0,0 +1,61 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes the image blobs that no attachment has referenced for {@code orphan-grace}, in
+ * batches, each blob in its own short transaction.
+ */
+@Component
+public class ImageBlobSweeper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageBlobSweeper.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final ImageStorage imageStorage;
+    private final ImageCache imageCache;
+    private final Duration orphanGrace;
+
+    public ImageBlobSweeper(ImageStorage imageStorage, ImageCache imageCache,
+                            @Value("${eshop.uploads.orphan-grace:10m}") Duration orphanGrace) {
+        this.imageStorage = imageStorage;
+        this.imageCache = imageCache;
+        this.orphanGrace = orphanGrace;
+    }
+
+    /**
+     * Deletes the orphaned blobs.
+     *
+     * @return the number of deleted blobs
+     */
+    @Scheduled(fixedDelayString = "${eshop.uploads.sweep-interval-ms:3600000}")
+    public int sweep() {
+        LocalDateTime releasedBefore = LocalDateTime.now().minus(orphanGrace);
+        int deleted = 0;
+        List<String> orphans;
+        do {
+            orphans = imageStorage.findOrphans(releasedBefore, BATCH_SIZE);
+            int batchDeleted = 0;
+            for (String hash : orphans) {
+                if (imageStorage.deleteIfOrphaned(hash)) {
+                    imageCache.invalidateImage(hash);
+                    batchDeleted++;
+                }
+            }
+            deleted += batchDeleted;
+            // blobs that could not be deleted would be found again
+            if (batchDeleted < orphans.size()) break;
+        } while (orphans.size() == BATCH_SIZE);
+
+        if (deleted > 0) LOGGER.info("Deleted {} orphaned image blobs", deleted);
+        return deleted;
+    }
+}
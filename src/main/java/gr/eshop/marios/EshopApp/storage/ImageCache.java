@@ -0,0 +1,102 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps the bytes of the most requested images in memory, in front of the {@link BlobStore}.
+ * <p>
+ * A few bestseller images account for most image requests. Their bytes are held in direct
+ * {@link ByteBuffer}s, outside the Java heap, in a cache bounded by their total size that evicts
+ * by W-TinyLFU, so a burst of one-off requests cannot push the hot images out. Images larger than
+ * {@code max-entry-size} are never cached, but are remembered as such, so their size is only looked
+ * up once, and the memory of an evicted image is released once its buffer is garbage collected. The hits and misses are published as the {@code cache.*} metrics
+ * of the {@code imageBytes} cache.
+ * </p>
+ */
+@Component
+public class ImageCache {
+
+    // stands for an image too large to be cached; weighs one byte, so it can be evicted too
+    private static final ByteBuffer TOO_LARGE = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    private final BlobStore blobStore;
+    private final long maxEntrySize;
+    private final Cache<String, ByteBuffer> images;
+
+    public ImageCache(BlobStore blobStore, MeterRegistry meterRegistry,
+                      @Value("${eshop.uploads.cache.max-size:64MB}") DataSize maxSize,
+                      @Value("${eshop.uploads.cache.max-entry-size:1MB}") DataSize maxEntrySize) {
+        this.blobStore = blobStore;
+        this.maxEntrySize = Math.min(maxEntrySize.toBytes(), Integer.MAX_VALUE);
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, ByteBuffer bytes) -> Math.max(1, bytes.capacity()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, images, "imageBytes");
+    }
+
+    /**
+     * Returns the bytes of an image, reading them into the cache on a miss.
+     *
+     * @param key the name the image is stored under
+     * @return a read-only buffer of the whole image, to be read with absolute positions only,
+     * or null if the image is not stored or is too large to be cached
+     * @throws IOException if the image cannot be read
+     */
+    public ByteBuffer get(String key) throws IOException {
+        try {
+            ByteBuffer bytes = images.get(key, this::load);
+            return bytes == TOO_LARGE ? null : bytes;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Drops an image and its variants from the cache.
+     *
+     * @param contentHash the hash of the image, null for images stored before content addressing
+     */
+    public void invalidateImage(String contentHash) {
+        if (contentHash == null) return;
+        images.asMap().keySet().removeIf(key -> key.startsWith(contentHash));
+    }
+
+    private ByteBuffer load(String key) {
+        try {
+            if (!blobStore.exists(key)) return null;
+            long size = blobStore.size(key);
+            if (size > maxEntrySize) return TOO_LARGE;
+
+            ByteBuffer bytes = ByteBuffer.allocateDirect((int) size);
+            Path file = blobStore.localFile(key).orElse(null);
+            try (ReadableByteChannel channel = file != null
+                    ? FileChannel.open(file, StandardOpenOption.READ)
+                    : Channels.newChannel(blobStore.open(key))) {
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // read until the buffer is full
+                }
+            }
+            if (bytes.hasRemaining()) return null;
+            return bytes.flip().asReadOnlyBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
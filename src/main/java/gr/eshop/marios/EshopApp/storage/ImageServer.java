@@ -0,0 +1,173 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the stored product images and their {@link ImageVariant}s over HTTP.
+ * <p>
+ * A stored name never changes content, since it is the hash of that content, so every response
+ * carries a strong ETag derived from the name and may be cached for a year as immutable. A
+ * revalidation with {@code If-None-Match} is answered with 304 without opening the file. A
+ * single byte range is answered with 206; a request for several ranges gets the whole file.
+ * </p>
+ * <p>
+ * The body of a hot image is served from the {@link ImageCache}, which is only consulted once the
+ * image is known to exist and a body is to be sent. The others are read from the blob store: when it keeps them in local files, the body is handed
+ * to Tomcat's sendfile if the connector supports it, so the kernel copies the file straight to
+ * the socket, and is otherwise transferred from a {@link FileChannel}.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ImageServer {
+
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // a single file name that is neither hidden, like the temporary directory, nor a path
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    private static final String CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS)
+            .cachePublic()
+            .immutable()
+            .getHeaderValue();
+
+    private final BlobStore blobStore;
+    private final ImageCache imageCache;
+
+    /**
+     * Writes a stored image, or the part of it the request asks for, to the response.
+     *
+     * @param fileName the name the image is stored under
+     * @param request  the request
+     * @param response the response
+     * @throws AppObjectNotFoundException if no image is stored under that name
+     * @throws IOException                if the image cannot be read or written
+     */
+    public void serve(String fileName, HttpServletRequest request, HttpServletResponse response)
+            throws AppObjectNotFoundException, IOException {
+        if (!FILE_NAME.matcher(fileName).matches()) {
+            throw new AppObjectNotFoundException("Image", "Image " + fileName + " not found");
+        }
+        if (!blobStore.exists(fileName)) {
+            throw new AppObjectNotFoundException("Image", "Image " + fileName + " not found");
+        }
+
+        String etag = "\"" + fileName + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        boolean head = HttpMethod.HEAD.matches(request.getMethod());
+        ByteBuffer cached = head ? null : imageCache.get(fileName);
+        long length = cached != null ? cached.limit() : blobStore.size(fileName);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long start = 0;
+        long end = length;
+        HttpRange range = requestedRange(request, etag);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length) + 1;
+            } catch (IllegalArgumentException e) {
+                start = length;
+            }
+            if (start >= end) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+        }
+        response.setContentLengthLong(end - start);
+        if (head) return;
+
+        if (cached != null) {
+            ByteBuffer body = cached.slice((int) start, (int) (end - start));
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            while (body.hasRemaining()) {
+                out.write(body);
+            }
+            return;
+        }
+        Path file = blobStore.localFile(fileName).orElse(null);
+        if (file == null) {
+            try (InputStream in = blobStore.open(fileName)) {
+                StreamUtils.copyRange(in, response.getOutputStream(), start, end - 1);
+            }
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, out);
+                if (transferred <= 0) break;
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Returns the single range the request asks for, or null when the whole file is to be sent:
+     * no range, a malformed one, several ones, or an {@code If-Range} the file no longer matches.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) return null;
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(etag)) return null;
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+}
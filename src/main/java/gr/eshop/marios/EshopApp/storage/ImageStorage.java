@@ -0,0 +1,272 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import gr.eshop.marios.EshopApp.model.ImageBlob;
+import gr.eshop.marios.EshopApp.repository.ImageBlobRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Stores the uploaded product images in the {@link BlobStore}, once per distinct content,
+ * without buffering them in memory.
+ * <p>
+ * An upload is staged before any transaction starts: its stream is copied through a file
+ * channel into a temporary file of the blob store, one chunk at a time, and hashed on the way.
+ * The transaction that records the image only registers the staged file, which is put into the
+ * blob store once the transaction has committed; a rolled back transaction leaves no file behind.
+ * </p>
+ * <p>
+ * Images are content-addressed: a file is named after the SHA-256 hash of its bytes and
+ * described by an {@link ImageBlob} counting the attachments that reference it. Uploading the
+ * same photo again only adds a reference, and the files nobody references any more are
+ * deleted by the {@link ImageBlobSweeper}.
+ * </p>
+ */
+@Component
+public class ImageStorage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageStorage.class);
+    private static final long CHUNK_SIZE = 1 << 20;
+    private static final String PUBLIC_PATH = "uploads/";
+
+    private final BlobStore blobStore;
+    private final ImageBlobRepository imageBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ImageStorage(BlobStore blobStore, ImageBlobRepository imageBlobRepository,
+                        PlatformTransactionManager transactionManager) {
+        this.blobStore = blobStore;
+        this.imageBlobRepository = imageBlobRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Streams an uploaded image into a temporary file and inserts its blob, unreferenced, if
+     * its content is new.
+     * <p>
+     * The blob is inserted here, before the transaction that stores the image starts, so that
+     * the insert commits on its own without that transaction holding a second connection.
+     * Concurrent uploads of the same new content thus never insert the row twice: all but one
+     * of the inserts fail on the primary key. A blob staged but never stored stays unreferenced
+     * and is deleted by the {@link ImageBlobSweeper}.
+     * </p>
+     *
+     * @param file the uploaded file, possibly null or empty
+     * @return the staged image, or null if no image was uploaded
+     * @throws IOException if the upload cannot be read or written
+     */
+    public StagedImage stage(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) return null;
+
+        Path tempFile = Files.createTempFile(blobStore.tempDir(), "upload-", ".part");
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            long transferred;
+            while ((transferred = target.transferFrom(source, size, CHUNK_SIZE)) > 0) {
+                size += transferred;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        StagedImage image = new StagedImage(tempFile, file.getOriginalFilename(), file.getContentType(),
+                HexFormat.of().formatHex(digest.digest()), size);
+        try {
+            insertUnreferenced(image);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return image;
+    }
+
+    /**
+     * Returns the path an image is served under, relative to the root of the application,
+     * whichever {@link BlobStore} keeps it.
+     *
+     * @param savedName the name of the stored image
+     * @return the path of the image
+     */
+    public static String publicPath(String savedName) {
+        return PUBLIC_PATH + savedName;
+    }
+
+    /**
+     * Adds a reference to the blob of a staged image.
+     * <p>
+     * The blob was inserted when the image was staged. Only an image staged for longer than
+     * the {@code orphan-grace} of the {@link ImageBlobSweeper} may find it deleted, in which
+     * case it is inserted again in the current transaction.
+     * </p>
+     * <p>
+     * A blob whose file is not in the blob store yet gets the staged file moved into place once
+     * the transaction has committed; otherwise the staged file is left for
+     * {@link #discard(StagedImage)}.
+     * </p>
+     *
+     * @param image the staged image
+     * @return the name the image is stored under
+     */
+    @Transactional
+    public String store(StagedImage image) {
+        String hash = image.contentHash();
+        if (imageBlobRepository.acquire(hash) == 0) {
+            imageBlobRepository.insertUnreferenced(hash, savedName(image), image.size(), LocalDateTime.now());
+            imageBlobRepository.acquire(hash);
+        }
+
+        String savedName = imageBlobRepository.findSavedNameByHash(hash).orElseThrow();
+        if (!blobStore.exists(savedName)) {
+            storeAfterCommit(image, savedName);
+        }
+        return savedName;
+    }
+
+    /**
+     * Removes a reference from a blob; the blob is deleted by the {@link ImageBlobSweeper} once
+     * it has been unreferenced for a while.
+     *
+     * @param contentHash the hash of the blob, null for images stored before content addressing
+     */
+    @Transactional
+    public void release(String contentHash) {
+        if (contentHash == null) return;
+        if (imageBlobRepository.release(contentHash, LocalDateTime.now()) == 0) {
+            LOGGER.warn("Released blob {} has no references", contentHash);
+        }
+    }
+
+    /**
+     * Finds the blobs unreferenced since before the given time.
+     *
+     * @param releasedBefore the time the blobs must have been unreferenced since
+     * @param limit          the maximum number of blobs
+     * @return the hashes of the blobs
+     */
+    public List<String> findOrphans(LocalDateTime releasedBefore, int limit) {
+        return imageBlobRepository.findOrphanHashes(releasedBefore, Limit.of(limit));
+    }
+
+    /**
+     * Deletes a blob, its content and the content of its variants if it is still unreferenced.
+     * <p>
+     * The blob row stays locked until the transaction ends, so a concurrent upload of the same
+     * content either references it first, and the blob is kept, or finds it gone and stores the
+     * file anew after this deletion.
+     * </p>
+     *
+     * @param hash the hash of the blob
+     * @return true if the blob was deleted
+     */
+    @Transactional
+    public boolean deleteIfOrphaned(String hash) {
+        ImageBlob blob = imageBlobRepository.findForUpdate(hash).orElse(null);
+        if (blob == null || blob.getRefCount() > 0) return false;
+        try {
+            blobStore.delete(blob.getSavedName());
+            for (ImageVariant variant : ImageVariant.values()) {
+                blobStore.delete(variant.fileName(hash));
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not delete the file {} of blob {}", blob.getSavedName(), hash, e);
+            return false;
+        }
+        imageBlobRepository.delete(blob);
+        return true;
+    }
+
+    /**
+     * Puts a staged image into the blob store once the current transaction has committed,
+     * or right away when there is no transaction.
+     *
+     * @param image     the staged image
+     * @param savedName the name to store the image under
+     */
+    void storeAfterCommit(StagedImage image, String savedName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            moveIntoPlace(image, savedName);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                moveIntoPlace(image, savedName);
+            }
+        });
+    }
+
+    /**
+     * Deletes the temporary file of an image that was not stored.
+     *
+     * @param image the staged image, possibly null or already stored
+     */
+    public void discard(StagedImage image) {
+        if (image == null) return;
+        try {
+            Files.deleteIfExists(image.tempFile());
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete the staged upload {}", image.tempFile(), e);
+        }
+    }
+
+    /**
+     * Inserts the blob of a staged image unless it already exists.
+     */
+    private void insertUnreferenced(StagedImage image) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!imageBlobRepository.existsById(image.contentHash())) {
+                    imageBlobRepository.insertUnreferenced(image.contentHash(), savedName(image), image.size(),
+                            LocalDateTime.now());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent upload of the same content inserted it first
+        }
+    }
+
+    private static String savedName(StagedImage image) {
+        return image.contentHash() + image.extension();
+    }
+
+    private void moveIntoPlace(StagedImage image, String savedName) {
+        try {
+            blobStore.put(savedName, image.tempFile());
+        } catch (IOException e) {
+            LOGGER.error("Could not store the staged upload {} as {}", image.tempFile(), savedName, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
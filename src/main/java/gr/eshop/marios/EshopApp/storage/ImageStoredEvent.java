@@ -0,0 +1,11 @@
+package gr.eshop.marios.EshopApp.storage;
+
+/**
+ * Published when a product image is stored, so that its variants are derived once the
+ * storing transaction has committed.
+ *
+ * @param contentHash the hash of the image
+ * @param savedName   the name the image is stored under
+ */
+public record ImageStoredEvent(String contentHash, String savedName) {
+}
@@ -0,0 +1,34 @@
+package gr.eshop.marios.EshopApp.storage;
+
+/**
+ * The downscaled JPEG variants derived from every stored product image.
+ */
+public enum ImageVariant {
+
+    THUMBNAIL("thumb", 160),
+    CARD("card", 480),
+    DETAIL("detail", 1200);
+
+    private final String suffix;
+    private final int maxSize;
+
+    ImageVariant(String suffix, int maxSize) {
+        this.suffix = suffix;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the maximum width and height of the variant, in pixels
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param contentHash the hash of the original image
+     * @return the name the variant of that image is stored under
+     */
+    public String fileName(String contentHash) {
+        return contentHash + "-" + suffix + ".jpg";
+    }
+}
@@ -0,0 +1,227 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import gr.eshop.marios.EshopApp.catalog.ProductChangedEvent;
+import gr.eshop.marios.EshopApp.repository.AttachmentPhotoRepository;
+import gr.eshop.marios.EshopApp.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Derives the {@link ImageVariant}s of the stored product images in the background.
+ * <p>
+ * Once the transaction storing an image has committed, a single worker thread decodes the
+ * original with {@link ImageIO}, scales it down in halving steps, which keeps the small variants
+ * sharp, and puts each variant as a JPEG into the {@link BlobStore}. The paths are then recorded on
+ * every attachment of that content and the affected products are refreshed in the catalog.
+ * Variants are shared by content like the originals, so an image uploaded again is only decoded
+ * if its variants are missing. An original already smaller than a variant serves as that variant,
+ * and an image ImageIO cannot decode keeps no variants: clients fall back to the original.
+ * </p>
+ * <p>
+ * The dimensions of an original are read from its header before any pixel is decoded. An image
+ * of more than {@code max-pixels} pixels is never decoded and keeps no variants either, and a
+ * large one is decoded subsampled, to about twice the size of the largest variant, so the worker
+ * never holds a full-resolution copy of a huge upload in memory.
+ * </p>
+ */
+@Component
+public class ImageVariantGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImageVariantGenerator.class);
+    private static final int DECODED_SIZE = 2 * ImageVariant.DETAIL.getMaxSize();
+
+    private final BlobStore blobStore;
+    private final AttachmentPhotoRepository attachmentPhotoRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final long maxPixels;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-variants");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ImageVariantGenerator(BlobStore blobStore, AttachmentPhotoRepository attachmentPhotoRepository,
+                                 ProductRepository productRepository, ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${eshop.uploads.variants.max-pixels:40000000}") long maxPixels) {
+        this.blobStore = blobStore;
+        this.attachmentPhotoRepository = attachmentPhotoRepository;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Queues the derivation of the variants of a stored image once its transaction has committed.
+     *
+     * @param event the {@link ImageStoredEvent} of the image
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onImageStored(ImageStoredEvent event) {
+        worker.execute(() -> {
+            try {
+                generate(event.contentHash(), event.savedName());
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Could not derive the variants of image {}", event.savedName(), e);
+            }
+        });
+    }
+
+    /**
+     * Derives the missing variants of an image and records them on its attachments.
+     *
+     * @param contentHash the hash of the image
+     * @param savedName   the name the image is stored under
+     * @throws IOException if the image cannot be read or a variant cannot be written
+     */
+    public void generate(String contentHash, String savedName) throws IOException {
+        Map<ImageVariant, String> paths = new EnumMap<>(ImageVariant.class);
+        Decoded original = null;
+        for (ImageVariant variant : ImageVariant.values()) {
+            String variantName = variant.fileName(contentHash);
+            if (!blobStore.exists(variantName)) {
+                if (original == null) {
+                    original = decode(savedName);
+                    if (original == null) return;
+                }
+                if (Math.max(original.width(), original.height()) <= variant.getMaxSize()) {
+                    paths.put(variant, ImageStorage.publicPath(savedName));
+                    continue;
+                }
+                write(scale(original.image(), variant.getMaxSize()), variantName);
+            }
+            paths.put(variant, ImageStorage.publicPath(variantName));
+        }
+
+        List<Long> productIds = transactionTemplate.execute(status -> {
+            attachmentPhotoRepository.updateVariants(contentHash, paths.get(ImageVariant.THUMBNAIL),
+                    paths.get(ImageVariant.CARD), paths.get(ImageVariant.DETAIL));
+            return productRepository.findIdsByAttachmentPhotoContentHash(contentHash);
+        });
+        if (productIds != null && !productIds.isEmpty()) {
+            eventPublisher.publishEvent(ProductChangedEvent.of(productIds));
+        }
+    }
+
+    /**
+     * Decodes a stored image, subsampled when it is much larger than the largest variant.
+     *
+     * @param savedName the name the image is stored under
+     * @return the decoded image with the dimensions of the original, or null if the image
+     * cannot be decoded or has more pixels than allowed
+     * @throws IOException if the image cannot be read
+     */
+    private Decoded decode(String savedName) throws IOException {
+        try (InputStream in = blobStore.open(savedName);
+             ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = stream != null ? ImageIO.getImageReaders(stream) : null;
+            if (readers == null || !readers.hasNext()) {
+                LOGGER.warn("Image {} has a format ImageIO cannot decode, it gets no variants", savedName);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    LOGGER.warn("Image {} has {}x{} pixels, more than {}, it gets no variants", savedName, width, height, maxPixels);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / DECODED_SIZE);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return new Decoded(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales an image down to fit a square, keeping its aspect ratio.
+     *
+     * @param source  the image
+     * @param maxSize the maximum width and height
+     * @return an opaque RGB image no larger than {@code maxSize} in either direction
+     */
+    static BufferedImage scale(BufferedImage source, int maxSize) {
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current == source || current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha: transparent pixels become white
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, String variantName) throws IOException {
+        Path tempFile = Files.createTempFile(blobStore.tempDir(), "variant-", ".part");
+        try {
+            if (!ImageIO.write(image, "jpg", tempFile.toFile())) {
+                throw new IOException("No JPEG writer available");
+            }
+            blobStore.put(variantName, tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * A decoded image, possibly subsampled, with the width and height of the original.
+     */
+    private record Decoded(BufferedImage image, int width, int height) {
+    }
+}
@@ -0,0 +1,74 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link BlobStore} keeping every blob in a byte array on the heap, for tests and benchmarks.
+ * <p>
+ * Nothing survives a restart and nothing is shared between instances. Only the content being
+ * prepared touches the disk, in a temporary directory of the system.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "eshop.uploads.store", havingValue = "memory")
+public class InMemoryBlobStore implements BlobStore {
+
+    private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+    private Path tempDir;
+
+    @Override
+    public synchronized Path tempDir() throws IOException {
+        if (tempDir == null || !Files.isDirectory(tempDir)) {
+            tempDir = Files.createTempDirectory("eshop-blobs-");
+        }
+        return tempDir;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        blobs.put(key, Files.readAllBytes(source));
+        Files.delete(source);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return blobs.containsKey(key);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return require(key).length;
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return new ByteArrayInputStream(require(key));
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return blobs.remove(key) != null;
+    }
+
+    private byte[] require(String key) throws NoSuchFileException {
+        byte[] content = blobs.get(key);
+        if (content == null) throw new NoSuchFileException(key);
+        return content;
+    }
+}
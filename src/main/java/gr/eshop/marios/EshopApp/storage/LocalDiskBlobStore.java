@@ -0,0 +1,107 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * {@link BlobStore} keeping every blob in a file of the upload directory.
+ * <p>
+ * The files are fanned out over two levels of 256 directories picked by the SHA-256 hash of the
+ * key, {@code uploads/3f/a2/<key>}, so no directory grows past a few hundred entries even with
+ * millions of images. Files stored flat in the upload directory before the fan-out are still
+ * found. Content is prepared in the {@code .tmp} folder of the same file system and renamed into
+ * place, which is atomic. Pointing several instances at a shared mount lets them share the images.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "eshop.uploads.store", havingValue = "disk", matchIfMissing = true)
+public class LocalDiskBlobStore implements BlobStore {
+
+    private static final String TEMP_DIR = ".tmp";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path root;
+
+    public LocalDiskBlobStore(@Value("${eshop.uploads.dir:uploads}") String uploadDir) {
+        this.root = Paths.get(uploadDir);
+    }
+
+    @Override
+    public Path tempDir() throws IOException {
+        return Files.createDirectories(root.resolve(TEMP_DIR));
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = shardedPath(key);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return locate(key) != null;
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(require(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(require(key));
+    }
+
+    @Override
+    public Optional<Path> localFile(String key) {
+        return Optional.ofNullable(locate(key));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        boolean deleted = Files.deleteIfExists(shardedPath(key));
+        return Files.deleteIfExists(root.resolve(key)) || deleted;
+    }
+
+    /**
+     * @param key the key
+     * @return the path the content of the key is stored under
+     */
+    Path shardedPath(String key) {
+        byte[] hash = sha256().digest(key.getBytes(StandardCharsets.UTF_8));
+        return root.resolve(HEX.toHexDigits(hash[0])).resolve(HEX.toHexDigits(hash[1])).resolve(key);
+    }
+
+    private Path locate(String key) {
+        Path sharded = shardedPath(key);
+        if (Files.isRegularFile(sharded)) return sharded;
+        // stored before the fan-out
+        Path flat = root.resolve(key);
+        return Files.isRegularFile(flat) ? flat : null;
+    }
+
+    private Path require(String key) throws NoSuchFileException {
+        Path file = locate(key);
+        if (file == null) throw new NoSuchFileException(key);
+        return file;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import java.nio.file.Path;
+
+/**
+ * An uploaded image written to a temporary file of the upload directory, not yet in place.
+ *
+ * @param tempFile         the temporary file holding the bytes of the image
+ * @param originalFilename the name of the file on the client
+ * @param contentType      the content type declared by the client
+ * @param contentHash      the hex SHA-256 hash of the bytes
+ * @param size             the number of bytes
+ */
+public record StagedImage(Path tempFile, String originalFilename, String contentType, String contentHash, long size) {
+
+    /**
+     * Returns the extension of the original file name.
+     *
+     * @return the extension with its dot, empty if the name has none
+     */
+    public String extension() {
+        if (originalFilename != null && originalFilename.contains(".")) {
+            return originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        return "";
+    }
+}
@@ -0,0 +1,90 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.core.enums.Role;
+import gr.eshop.marios.EshopApp.dto.*;
+import gr.eshop.marios.EshopApp.security.JwtService;
+import gr.eshop.marios.EshopApp.service.CustomerServiceImpl;
+import gr.eshop.marios.EshopApp.service.UserServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AuthenticationServiceTest {
+
+    private static final String PASSWORD = "Secret#123";
+
+    @Autowired
+    private AuthenticationService authenticationService;
+    @Autowired
+    private UserServiceImpl userService;
+    @Autowired
+    private CustomerServiceImpl customerService;
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    // keeps the catalog loader from adding statements to the count
+    @MockBean
+    private ProductCatalog productCatalog;
+
+    private Statistics statistics;
+    private UserReadOnlyDTO user;
+    private CustomerReadOnlyDTO customer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        user = userService.saveUser(new UserInsertDTO("user-" + UUID.randomUUID() + "@eshop.gr", PASSWORD, Role.CUSTOMER_USER, true));
+        customer = customerService.saveCustomer(new CustomerInsertDTO(user.getUuid(), "Μαρία", "Παπαδοπούλου"));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void logsInWithOneQueryForTheUser() throws Exception {
+        AuthenticationResponseDTO response = login();
+
+        // the user with its first name, and the refresh token insert
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("Μαρία", response.getFirstname());
+        assertEquals(user.getUuid(), response.getUserUuid());
+        assertEquals(user.getUsername(), jwtService.parseToken(response.getToken()).getSubject());
+        assertNotNull(response.getRefreshToken());
+
+        statistics.clear();
+        login();
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void showsTheCurrentFirstnameAfterTheCustomerChanges() throws Exception {
+        login();
+
+        customerService.updateCustomer(new CustomerUpdateDTO(customer.getUuid(), "Ελένη", "Παπαδοπούλου"));
+
+        assertEquals("Ελένη", login().getFirstname());
+    }
+
+    private AuthenticationResponseDTO login() throws Exception {
+        return authenticationService.authenticate(new AuthenticationRequestDTO(user.getUsername(), PASSWORD),
+                UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,87 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.dto.UserInsertDTO;
+import gr.eshop.marios.EshopApp.dto.UserReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.UserUpdateDTO;
+import gr.eshop.marios.EshopApp.service.UserServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CustomUserDetailsServiceTest {
+
+    private static final String PASSWORD = "Secret#123";
+    private static final String NEW_PASSWORD = "Changed#456";
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+    @Autowired
+    private UserServiceImpl userService;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    // keeps the catalog loader from adding statements to the count
+    @MockBean
+    private ProductCatalog productCatalog;
+
+    private Statistics statistics;
+    private UserReadOnlyDTO user;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        user = userService.saveUser(new UserInsertDTO("user-" + UUID.randomUUID() + "@eshop.gr", PASSWORD, null, true));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void servesRepeatedLookupsFromTheCache() {
+        double hits = cacheGets("hit");
+
+        UserDetails first = userDetailsService.loadUserByUsername(user.getUsername());
+        UserDetails second = userDetailsService.loadUserByUsername(user.getUsername());
+
+        assertSame(first, second);
+        assertInstanceOf(AppUserDetails.class, first);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(hits + 1, cacheGets("hit"));
+    }
+
+    @Test
+    void evictsTheUserWhenItChanges() throws Exception {
+        userDetailsService.loadUserByUsername(user.getUsername());
+
+        userService.updateUser(new UserUpdateDTO(user.getUuid(), user.getUsername(), NEW_PASSWORD));
+
+        assertTrue(passwordEncoder.matches(NEW_PASSWORD, userDetailsService.loadUserByUsername(user.getUsername()).getPassword()));
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", result).functionCounter().count();
+    }
+}
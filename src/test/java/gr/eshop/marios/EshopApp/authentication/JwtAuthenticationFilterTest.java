@@ -0,0 +1,69 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.security.JwtPrincipal;
+import gr.eshop.marios.EshopApp.security.JwtService;
+import gr.eshop.marios.EshopApp.security.TokenRevocationList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private final JwtService jwtService = new JwtService(100);
+    private final TokenRevocationList tokenRevocationList = new TokenRevocationList(jwtService);
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final JwtAuthenticationFilter filter =
+            new JwtAuthenticationFilter(jwtService, userDetailsService, tokenRevocationList);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(filter, "stateless", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void statelessModeAuthenticatesFromTheClaimsWithoutLoadingTheUser() throws Exception {
+        MockHttpServletResponse response = filter(jwtService.generateToken("alice", "CUSTOMER_USER", "alice-uuid"));
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals(200, response.getStatus());
+        assertEquals(new JwtPrincipal("alice", "CUSTOMER_USER", "alice-uuid"), authentication.getPrincipal());
+        assertEquals("alice", authentication.getName());
+        assertEquals("CUSTOMER_USER", authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).findFirst().orElseThrow());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void rejectsTokensIssuedBeforeTheirUserWasRevoked() throws Exception {
+        String token = jwtService.generateToken("alice", "CUSTOMER_USER", "alice-uuid");
+        tokenRevocationList.revoke("alice");
+
+        MockHttpServletResponse response = filter(token);
+
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    private MockHttpServletResponse filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders/all");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
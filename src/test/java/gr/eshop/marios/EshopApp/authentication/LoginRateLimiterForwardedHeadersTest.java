@@ -0,0 +1,46 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.forward-headers-strategy=native",
+        "eshop.security.login.per-ip.capacity=1",
+        "eshop.security.login.per-username.capacity=100"
+})
+class LoginRateLimiterForwardedHeadersTest {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void forwardedClientsOfTheSameProxyGetSeparateBuckets() throws Exception {
+        assertNotEquals(TOO_MANY_REQUESTS, login("203.0.113.1"));
+        assertEquals(TOO_MANY_REQUESTS, login("203.0.113.1"));
+
+        assertNotEquals(TOO_MANY_REQUESTS, login("203.0.113.2"));
+    }
+
+    private int login(String clientIp) throws Exception {
+        String credentials = "{\"username\":\"nobody-" + UUID.randomUUID() + "\",\"password\":\"wrong\"}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/authenticate"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", clientIp)
+                .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
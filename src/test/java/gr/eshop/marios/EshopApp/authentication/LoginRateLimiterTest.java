@@ -0,0 +1,45 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppTooManyRequestsException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterTest {
+
+    @Test
+    void limitsTheAttemptsPerUsernameWhateverTheCase() throws Exception {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, 100, Duration.ofHours(1));
+        limiter.acquire("alice", "10.0.0.1");
+        limiter.acquire("Alice", "10.0.0.2");
+        limiter.acquire("ALICE", "10.0.0.3");
+
+        AppTooManyRequestsException e = assertThrows(AppTooManyRequestsException.class,
+                () -> limiter.acquire("alice", "10.0.0.4"));
+        assertEquals("LoginTooManyRequests", e.getCode());
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        limiter.acquire("bob", "10.0.0.4");
+    }
+
+    @Test
+    void limitsTheAttemptsPerClientAcrossUsernames() throws Exception {
+        LoginRateLimiter limiter = new LoginRateLimiter(100, 2, Duration.ofHours(1));
+        limiter.acquire("alice", "10.0.0.1");
+        limiter.acquire("bob", "10.0.0.1");
+
+        assertThrows(AppTooManyRequestsException.class, () -> limiter.acquire("carol", "10.0.0.1"));
+        limiter.acquire("carol", "10.0.0.2");
+    }
+
+    @Test
+    void refillsTheBucketsOverTime() throws Exception {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 100, Duration.ofMillis(50));
+        limiter.acquire("alice", "10.0.0.1");
+        assertThrows(AppTooManyRequestsException.class, () -> limiter.acquire("alice", "10.0.0.1"));
+
+        Thread.sleep(60);
+        limiter.acquire("alice", "10.0.0.1");
+    }
+}
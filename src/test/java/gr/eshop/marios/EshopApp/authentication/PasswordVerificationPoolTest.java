@@ -0,0 +1,82 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppTooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordVerificationPoolTest {
+
+    private final PasswordVerificationPool pool = new PasswordVerificationPool(1, 1, Duration.ofSeconds(5));
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void returnsTheResultAndRethrowsAuthenticationFailures() throws Exception {
+        assertEquals("ok", pool.verify(() -> "ok"));
+        assertThrows(BadCredentialsException.class, () -> pool.verify(() -> {
+            throw new BadCredentialsException("Bad credentials");
+        }));
+    }
+
+    @Test
+    void rejectsVerificationsBeyondTheQueue() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> verify(() -> {
+            running.countDown();
+            await(release);
+            return "first";
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> verify(() -> "second"));
+        while (pool.queuedVerifications() == 0) Thread.onSpinWait();
+
+        AppTooManyRequestsException e = assertThrows(AppTooManyRequestsException.class, () -> pool.verify(() -> "third"));
+        assertEquals("LoginTooManyRequests", e.getCode());
+
+        release.countDown();
+        assertEquals("first", busy.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectsVerificationsThatWaitTooLong() {
+        PasswordVerificationPool slowPool = new PasswordVerificationPool(1, 1, Duration.ofMillis(20));
+        try {
+            assertThrows(AppTooManyRequestsException.class, () -> slowPool.verify(() -> {
+                await(new CountDownLatch(1));
+                return "never";
+            }));
+        } finally {
+            slowPool.shutdown();
+        }
+    }
+
+    private String verify(Supplier<String> verification) {
+        try {
+            return pool.verify(verification);
+        } catch (AppTooManyRequestsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package gr.eshop.marios.EshopApp.authentication;
+
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotAuthorizedException;
+import gr.eshop.marios.EshopApp.dto.*;
+import gr.eshop.marios.EshopApp.repository.UserRepository;
+import gr.eshop.marios.EshopApp.security.JwtService;
+import gr.eshop.marios.EshopApp.service.UserServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class RefreshTokenServiceTest {
+
+    private static final String PASSWORD = "Secret#123";
+
+    @Autowired
+    private AuthenticationService authenticationService;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private UserServiceImpl userService;
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    // keeps the catalog loader from adding statements to the count
+    @MockBean
+    private ProductCatalog productCatalog;
+
+    private Statistics statistics;
+    private UserReadOnlyDTO user;
+    private AuthenticationResponseDTO login;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        user = userService.saveUser(new UserInsertDTO("user-" + UUID.randomUUID() + "@eshop.gr", PASSWORD, null, true));
+        login = authenticationService.authenticate(new AuthenticationRequestDTO(user.getUsername(), PASSWORD),
+                UUID.randomUUID().toString());
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        setTtl(Duration.ofDays(14));
+    }
+
+    @Test
+    void refreshesWithoutCheckingThePasswordAndRotatesTheToken() throws Exception {
+        AuthenticationResponseDTO refreshed = authenticationService.refresh(new RefreshTokenRequestDTO(login.getRefreshToken()));
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(user.getUuid(), refreshed.getUserUuid());
+        assertEquals(login.getFirstname(), refreshed.getFirstname());
+        assertEquals(user.getUsername(), jwtService.parseToken(refreshed.getToken()).getSubject());
+        assertNotEquals(login.getRefreshToken(), refreshed.getRefreshToken());
+
+        assertThrows(AppObjectNotAuthorizedException.class,
+                () -> authenticationService.refresh(new RefreshTokenRequestDTO(login.getRefreshToken())));
+        assertNotNull(authenticationService.refresh(new RefreshTokenRequestDTO(refreshed.getRefreshToken())).getToken());
+    }
+
+    @Test
+    void rejectsExpiredAndRevokedTokens() throws Exception {
+        setTtl(Duration.ofSeconds(-1));
+        AuthenticationResponseDTO expired = authenticationService.refresh(new RefreshTokenRequestDTO(login.getRefreshToken()));
+        assertThrows(AppObjectNotAuthorizedException.class,
+                () -> authenticationService.refresh(new RefreshTokenRequestDTO(expired.getRefreshToken())));
+
+        setTtl(Duration.ofDays(14));
+        AuthenticationResponseDTO relogin = authenticationService.authenticate(
+                new AuthenticationRequestDTO(user.getUsername(), PASSWORD), UUID.randomUUID().toString());
+        userService.updateUser(new UserUpdateDTO(user.getUuid(), user.getUsername(), "Changed#456"));
+        assertThrows(AppObjectNotAuthorizedException.class,
+                () -> authenticationService.refresh(new RefreshTokenRequestDTO(relogin.getRefreshToken())));
+    }
+
+    @Test
+    void revokesTheTokensIssuedBeforeTheRevocationCommits() {
+        Long userId = userRepository.findByUuid(user.getUuid()).orElseThrow().getId();
+        AtomicReference<String> issuedMeanwhile = new AtomicReference<>();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            refreshTokenService.revokeAll(userId);
+            issuedMeanwhile.set(CompletableFuture.supplyAsync(() -> refreshTokenService.issue(userId)).join());
+        });
+
+        assertThrows(AppObjectNotAuthorizedException.class,
+                () -> authenticationService.refresh(new RefreshTokenRequestDTO(issuedMeanwhile.get())));
+    }
+
+    private void setTtl(Duration ttl) {
+        RefreshTokenService target = AopTestUtils.getTargetObject(refreshTokenService);
+        ReflectionTestUtils.setField(target, "ttl", ttl);
+    }
+}
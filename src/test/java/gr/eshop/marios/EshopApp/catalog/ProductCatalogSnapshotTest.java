@@ -0,0 +1,98 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
+import gr.eshop.marios.EshopApp.core.filters.ProductFilters;
+import gr.eshop.marios.EshopApp.dto.BrandReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.CategoryReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ProductCatalogSnapshotTest {
+
+    private static final TextNormalizer NORMALIZER = new TextNormalizer(true);
+
+    private static final List<ProductReadOnlyDTO> PRODUCTS = List.of(
+            product(1L, "Laptop Gaming", 500.0, "Asus", true),
+            product(2L, "Laptop Office", 300.0, "Dell", false),
+            product(4L, "Mouse", 20.0, "Logitech", true),
+            product(7L, "Laptop Ultrabook", 300.0, "Asus", true),
+            product(9L, "Keyboard", 45.0, "Logitech", null));
+
+    private final ProductCatalogSnapshot snapshot = ProductCatalogSnapshot.of(1, PRODUCTS, Map.of(), NORMALIZER);
+
+    @Test
+    void patchesTheIndexesOfProductsChangedInPlace() {
+        List<ProductReadOnlyDTO> upserts = List.of(
+                product(2L, "Laptop Office", 600.0, "Asus", true),
+                product(9L, "Gaming Keyboard", 300.0, "Logitech", false));
+
+        ProductCatalogSnapshot patched = snapshot.withChanges(upserts, List.of(), Map.of());
+        ProductCatalogSnapshot rebuilt = ProductCatalogSnapshot.of(2, List.of(PRODUCTS.get(0), upserts.get(0),
+                PRODUCTS.get(2), PRODUCTS.get(3), upserts.get(1)), Map.of(), NORMALIZER);
+
+        List<ProductFilters> cases = List.of(
+                ProductFilters.builder().build(),
+                ProductFilters.builder().brand("Asus").build(),
+                ProductFilters.builder().brand("Dell").build(),
+                ProductFilters.builder().isInStock(false).build(),
+                ProductFilters.builder().minPrice(300.0).maxPrice(500.0).build(),
+                ProductFilters.builder().name("gaming").build());
+        for (ProductFilters filters : cases) {
+            for (String sortBy : List.of("id", "price")) {
+                for (Sort.Direction direction : Sort.Direction.values()) {
+                    filters.setPageSize(100);
+                    filters.setSortBy(sortBy);
+                    filters.setSortDirection(direction);
+                    assertEquals(ids(rebuilt, filters), ids(patched, filters), filters::toString);
+                }
+            }
+        }
+        assertSame(upserts.get(0), patched.findBySku("SKU-2").orElseThrow());
+        assertEquals(List.of(1L, 2L, 7L), patched.search(ProductSearchIndex.Field.BRAND, "asus").stream().map(ProductReadOnlyDTO::getId).toList());
+    }
+
+    @Test
+    void ranksSuggestionsBySalesOnceRefreshed() {
+        ProductCatalogSnapshot sold = snapshot.withChanges(List.of(PRODUCTS.get(1)), List.of(), Map.of("SKU-2", 10L));
+        assertEquals("Laptop Gaming", sold.suggest("lapt", 1).get(0).text());
+
+        ProductCatalogSnapshot refreshed = sold.withFreshSuggestions();
+        assertEquals("Laptop Office", refreshed.suggest("lapt", 1).get(0).text());
+        assertSame(refreshed, refreshed.withFreshSuggestions());
+    }
+
+    @Test
+    void dropsTheSuggestionsOfADeactivatedProduct() {
+        ProductReadOnlyDTO deactivated = product(4L, "Mouse", 20.0, "Logitech", true);
+        deactivated.setIsActive(false);
+
+        ProductCatalogSnapshot changed = snapshot.withChanges(List.of(deactivated), List.of(), Map.of());
+        assertEquals(List.of(), changed.suggest("mous", 10));
+    }
+
+    private static List<Long> ids(ProductCatalogSnapshot snapshot, ProductFilters filters) {
+        Paginated<ProductReadOnlyDTO> page = snapshot.getFilteredPage(snapshot.filter(filters), filters);
+        return page.getData().stream().map(ProductReadOnlyDTO::getId).toList();
+    }
+
+    private static ProductReadOnlyDTO product(Long id, String name, Double price, String brand, Boolean inStock) {
+        return ProductReadOnlyDTO.builder()
+                .id(id)
+                .uuid("uuid-" + id)
+                .name(name)
+                .sku("SKU-" + id)
+                .price(price)
+                .brand(new BrandReadOnlyDTO(null, brand))
+                .category(new CategoryReadOnlyDTO(null, "Computers"))
+                .isActive(true)
+                .inStock(inStock)
+                .build();
+    }
+}
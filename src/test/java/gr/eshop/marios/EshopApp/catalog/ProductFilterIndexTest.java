@@ -0,0 +1,168 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppInvalidCursorException;
+import gr.eshop.marios.EshopApp.core.filters.KeysetCursor;
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
+import gr.eshop.marios.EshopApp.core.filters.ProductFilters;
+import gr.eshop.marios.EshopApp.dto.BrandReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.CategoryReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductFilterIndexTest {
+
+    private static final List<ProductReadOnlyDTO> PRODUCTS = List.of(
+            product(1L, "Laptop Gaming", 500.0, "Asus", "Laptops", true, true),
+            product(2L, "Laptop Office", 300.0, "Dell", "Laptops", true, false),
+            product(4L, "Mouse", 20.0, "Logitech", "Accessories", false, true),
+            product(7L, "Laptop Ultrabook", 300.0, "Asus", "Laptops", null, true),
+            product(9L, "Keyboard", 45.0, "Logitech", "Accessories", true, null));
+
+    private final ProductCatalogSnapshot snapshot = ProductCatalogSnapshot.of(1, PRODUCTS, Map.of(), new TextNormalizer(true));
+
+    @Test
+    void combinesFiltersWithTheSemanticsOfTheSpecifications() {
+        assertEquals(List.of(1L, 7L), ids(ProductFilters.builder().brand("Asus").build()));
+        assertEquals(List.of(1L, 2L), ids(ProductFilters.builder().category("Laptops").isActive(true).build()));
+        // a null flag matches neither true nor false
+        assertEquals(List.of(4L), ids(ProductFilters.builder().isActive(false).build()));
+        assertEquals(List.of(2L), ids(ProductFilters.builder().isInStock(false).build()));
+        assertEquals(List.of(), ids(ProductFilters.builder().brand("Unknown").build()));
+    }
+
+    @Test
+    void matchesBrandAndCategoryIgnoringCaseAndAccents() {
+        assertEquals(List.of(1L, 7L), ids(ProductFilters.builder().brand("asus").build()));
+        assertEquals(List.of(4L, 9L), ids(ProductFilters.builder().brand("LOGITECH").category("accessóries").build()));
+    }
+
+    @Test
+    void combinesFiltersWithTextSearch() {
+        assertEquals(List.of(1L, 7L), ids(ProductFilters.builder().name("laptop").isInStock(true).build()));
+    }
+
+    @Test
+    void pagesByOffsetInBothDirections() {
+        ProductFilters filters = ProductFilters.builder().isInStock(true).build();
+        filters.setPageSize(2);
+        filters.setPage(1);
+
+        Paginated<ProductReadOnlyDTO> page = snapshot.getFilteredPage(snapshot.filter(filters), filters);
+        assertEquals(List.of(7L), ids(page));
+        assertEquals(3, page.getTotalElements());
+        assertEquals(2, page.getTotalPages());
+
+        filters.setSortDirection(Sort.Direction.DESC);
+        filters.setPage(0);
+        assertEquals(List.of(7L, 4L), ids(snapshot.getFilteredPage(snapshot.filter(filters), filters)));
+    }
+
+    @Test
+    void walksKeysetCursorsInBothDirections() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            ProductFilters filters = ProductFilters.builder().build();
+            filters.setPageSize(2);
+            filters.setKeyset(true);
+            filters.setSortDirection(direction);
+
+            List<Long> walked = new ArrayList<>();
+            Paginated<ProductReadOnlyDTO> page;
+            do {
+                page = snapshot.getFilteredPage(snapshot.filter(filters), filters);
+                walked.addAll(ids(page));
+                filters.setAfter(page.getNextCursor());
+            } while (page.getNextCursor() != null);
+
+            List<Long> expected = direction.isAscending() ? List.of(1L, 2L, 4L, 7L, 9L) : List.of(9L, 7L, 4L, 2L, 1L);
+            assertEquals(expected, walked);
+            assertNull(page.getNextCursor());
+        }
+    }
+
+    @Test
+    void filtersInclusivePriceRanges() {
+        assertEquals(List.of(2L, 7L, 9L), ids(ProductFilters.builder().minPrice(45.0).maxPrice(300.0).build()));
+        assertEquals(List.of(1L), ids(ProductFilters.builder().minPrice(300.01).build()));
+        assertEquals(List.of(4L), ids(ProductFilters.builder().maxPrice(44.99).build()));
+        assertEquals(List.of(), ids(ProductFilters.builder().minPrice(600.0).build()));
+    }
+
+    @Test
+    void ordersByPriceWithTheIdAsTieBreaker() {
+        ProductFilters filters = ProductFilters.builder().minPrice(30.0).build();
+        filters.setSortBy("price");
+        assertEquals(List.of(9L, 2L, 7L, 1L), ids(filters));
+
+        filters.setSortDirection(Sort.Direction.DESC);
+        filters.setPage(1);
+        filters.setPageSize(2);
+        assertEquals(List.of(2L, 9L), ids(snapshot.getFilteredPage(snapshot.filter(filters), filters)));
+    }
+
+    @Test
+    void walksPriceKeysetCursorsAcrossTies() {
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            ProductFilters filters = ProductFilters.builder().maxPrice(400.0).build();
+            filters.setSortBy("price");
+            filters.setSortDirection(direction);
+            filters.setPageSize(1);
+            filters.setKeyset(true);
+
+            List<Long> walked = new ArrayList<>();
+            Paginated<ProductReadOnlyDTO> page;
+            do {
+                page = snapshot.getFilteredPage(snapshot.filter(filters), filters);
+                walked.addAll(ids(page));
+                filters.setAfter(page.getNextCursor());
+            } while (page.getNextCursor() != null);
+
+            List<Long> expected = direction.isAscending() ? List.of(4L, 9L, 2L, 7L) : List.of(7L, 2L, 9L, 4L);
+            assertEquals(expected, walked);
+        }
+    }
+
+    @Test
+    void rejectsAPriceCursorWithoutAValidPrice() {
+        for (String price : List.of("abc", "NaN")) {
+            ProductFilters filters = ProductFilters.builder().build();
+            filters.setSortBy("price");
+            filters.setKeyset(true);
+            filters.setAfter(new KeysetCursor("price", Sort.Direction.ASC, price, 4L).encode());
+
+            assertThrows(AppInvalidCursorException.class, () -> snapshot.getFilteredPage(snapshot.filter(filters), filters));
+        }
+    }
+
+    private List<Long> ids(ProductFilters filters) {
+        filters.setPageSize(100);
+        return ids(snapshot.getFilteredPage(snapshot.filter(filters), filters));
+    }
+
+    private static List<Long> ids(Paginated<ProductReadOnlyDTO> page) {
+        return page.getData().stream().map(ProductReadOnlyDTO::getId).toList();
+    }
+
+    private static ProductReadOnlyDTO product(Long id, String name, Double price, String brand, String category,
+                                              Boolean isActive, Boolean inStock) {
+        return ProductReadOnlyDTO.builder()
+                .id(id)
+                .uuid("uuid-" + id)
+                .name(name)
+                .sku("SKU-" + id)
+                .price(price)
+                .brand(new BrandReadOnlyDTO(null, brand))
+                .category(new CategoryReadOnlyDTO(null, category))
+                .isActive(isActive)
+                .inStock(inStock)
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.dto.BrandReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.CategoryReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductSearchIndexTest {
+
+    private static final List<ProductReadOnlyDTO> PRODUCTS = List.of(
+            product(1L, "Λάπτοπ Gaming 15\"", "LAP-001", "Ασύς"),
+            product(2L, "λαπτοπ γραφείου", "LAP-002", "Dell"),
+            product(3L, "Ποντίκι ασύρματο", "MOU-001", "Logitech"),
+            product(4L, "Πάπτο λοπ", "PAP-001", "Other"));
+
+    private final ProductSearchIndex index = new ProductSearchIndex(PRODUCTS, new TextNormalizer(true));
+
+    @Test
+    void ignoresCaseAndTonos() {
+        assertEquals(List.of(1L, 2L), ids(index.search(ProductSearchIndex.Field.NAME, "ΛΑΠΤΟΠ")));
+        assertEquals(List.of(1L, 2L), ids(index.search(ProductSearchIndex.Field.NAME, "λάπτοπ")));
+    }
+
+    @Test
+    void matchesGreeklish() {
+        assertEquals(List.of(1L, 2L), ids(index.search(ProductSearchIndex.Field.NAME, "laptop")));
+        assertEquals(List.of(3L), ids(index.search(ProductSearchIndex.Field.NAME, "pontiki")));
+    }
+
+    @Test
+    void matchesSubstringsOnly() {
+        // every trigram of "laptop" also occurs in "papto lop", but not as one substring
+        assertEquals(List.of(), ids(index.search(ProductSearchIndex.Field.NAME, "aptop l")));
+        assertEquals(List.of(3L), ids(index.search(ProductSearchIndex.Field.NAME, "ασυρ")));
+    }
+
+    @Test
+    void searchesSkuAndBrandAndShortQueries() {
+        assertEquals(List.of(1L, 2L), ids(index.search(ProductSearchIndex.Field.SKU, "lap-")));
+        assertEquals(List.of(1L), ids(index.search(ProductSearchIndex.Field.BRAND, "ασυς")));
+        assertEquals(List.of(3L), ids(index.search(ProductSearchIndex.Field.SKU, "mo")));
+    }
+
+    @Test
+    void keepsGreekWhenGreeklishIsDisabled() {
+        ProductSearchIndex greekOnly = new ProductSearchIndex(PRODUCTS, new TextNormalizer(false));
+
+        assertEquals(List.of(), ids(greekOnly.search(ProductSearchIndex.Field.NAME, "laptop")));
+        assertEquals(List.of(1L, 2L), ids(greekOnly.search(ProductSearchIndex.Field.NAME, "ΛΆΠΤΟΠ")));
+    }
+
+    private static ProductReadOnlyDTO product(Long id, String name, String sku, String brand) {
+        return ProductReadOnlyDTO.builder()
+                .id(id)
+                .name(name)
+                .sku(sku)
+                .brand(new BrandReadOnlyDTO(id, brand))
+                .category(new CategoryReadOnlyDTO(id, "Υπολογιστές"))
+                .build();
+    }
+
+    private static List<Long> ids(List<ProductReadOnlyDTO> products) {
+        return products.stream().map(ProductReadOnlyDTO::getId).toList();
+    }
+}
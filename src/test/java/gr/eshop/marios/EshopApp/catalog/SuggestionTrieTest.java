@@ -0,0 +1,89 @@
+package gr.eshop.marios.EshopApp.catalog;
+
+import gr.eshop.marios.EshopApp.dto.BrandReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.CategoryReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestionTrieTest {
+
+    private static final List<ProductReadOnlyDTO> PRODUCTS = List.of(
+            product("p1", "Laptop Gaming", "LAP-001", "Asus", "Υπολογιστές"),
+            product("p2", "Laptop Office", "LAP-002", "Dell", "Υπολογιστές"),
+            product("p3", "USB USB-C Cable", "CAB-001", "Logitech", "Καλώδια"),
+            product("p4", "Λάπτοπ Ultrabook", "LAP-003", "Asus", "Υπολογιστές"),
+            product("p5", "Laptop Office", "LAP-004", "Dell", "Υπολογιστές"),
+            inactive(product("p6", "Laptop Prototype", "LAP-005", "Acer", "Υπολογιστές")));
+
+    private static final Map<String, Long> SALES = Map.of("LAP-001", 5L, "LAP-002", 40L, "CAB-001", 7L, "LAP-003", 1L,
+            "LAP-004", 2L, "LAP-005", 100L);
+
+    private final SuggestionTrie trie = new SuggestionTrie(PRODUCTS, SALES, new TextNormalizer(true));
+
+    @Test
+    void ranksCompletionsByUnitsSold() {
+        assertEquals(List.of("Laptop Office", "Laptop Gaming", "Λάπτοπ Ultrabook"), texts(trie.suggest("lapt", 10)));
+    }
+
+    @Test
+    void completesEveryWordOfATerm() {
+        assertEquals(List.of("Laptop Gaming"), texts(trie.suggest("gam", 10)));
+    }
+
+    @Test
+    void suggestsSkusBrandsAndCategories() {
+        assertEquals(List.of("LAP-002", "LAP-001", "LAP-004", "LAP-003"), texts(trie.suggest("lap-", 10)));
+        assertEquals(List.of("Asus"), texts(trie.suggest("asu", 10)));
+        assertEquals(List.of("Υπολογιστές"), texts(trie.suggest("υπολ", 10)));
+    }
+
+    @Test
+    void suggestsATermOnceEvenWhenSeveralOfItsWordsMatch() {
+        assertEquals(List.of("USB USB-C Cable"), texts(trie.suggest("usb", 10)));
+    }
+
+    @Test
+    void suggestsAnIdenticalTextOnceAsItsBestSeller() {
+        List<SuggestionTrie.Suggestion> suggestions = trie.suggest("laptop o", 10);
+        assertEquals(List.of("Laptop Office"), texts(suggestions));
+        assertEquals("p2", suggestions.get(0).productUuid());
+    }
+
+    @Test
+    void leavesOutInactiveProducts() {
+        assertEquals(List.of(), texts(trie.suggest("prot", 10)));
+        assertEquals(List.of(), texts(trie.suggest("acer", 10)));
+    }
+
+    @Test
+    void honoursTheLimitAndUnknownPrefixes() {
+        assertEquals(List.of("Laptop Office"), texts(trie.suggest("λαπτ", 1)));
+        assertEquals(List.of(), texts(trie.suggest("laptopx", 10)));
+        assertEquals(List.of(), texts(trie.suggest("  ", 10)));
+    }
+
+    private static ProductReadOnlyDTO product(String uuid, String name, String sku, String brand, String category) {
+        return ProductReadOnlyDTO.builder()
+                .uuid(uuid)
+                .name(name)
+                .sku(sku)
+                .brand(new BrandReadOnlyDTO(null, brand))
+                .category(new CategoryReadOnlyDTO(null, category))
+                .isActive(true)
+                .build();
+    }
+
+    private static ProductReadOnlyDTO inactive(ProductReadOnlyDTO product) {
+        product.setIsActive(false);
+        return product;
+    }
+
+    private static List<String> texts(List<SuggestionTrie.Suggestion> suggestions) {
+        return suggestions.stream().map(SuggestionTrie.Suggestion::text).toList();
+    }
+}
@@ -0,0 +1,203 @@
+package gr.eshop.marios.EshopApp.core.filters;
+
+import gr.eshop.marios.EshopApp.core.enums.Role;
+import gr.eshop.marios.EshopApp.dto.CustomerReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.dto.UserReadOnlyDTO;
+import gr.eshop.marios.EshopApp.model.Brand;
+import gr.eshop.marios.EshopApp.model.Category;
+import gr.eshop.marios.EshopApp.model.Customer;
+import gr.eshop.marios.EshopApp.model.Product;
+import gr.eshop.marios.EshopApp.model.User;
+import gr.eshop.marios.EshopApp.repository.BrandRepository;
+import gr.eshop.marios.EshopApp.repository.CategoryRepository;
+import gr.eshop.marios.EshopApp.repository.CustomerRepository;
+import gr.eshop.marios.EshopApp.repository.ProductRepository;
+import gr.eshop.marios.EshopApp.repository.UserRepository;
+import gr.eshop.marios.EshopApp.service.CustomerServiceImpl;
+import gr.eshop.marios.EshopApp.service.ProductServiceImpl;
+import gr.eshop.marios.EshopApp.service.UserServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class KeysetPaginationTest {
+
+    @Autowired
+    private UserServiceImpl userService;
+    @Autowired
+    private CustomerServiceImpl customerService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private ProductServiceImpl productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void walksUsersAcrossNullAndDuplicateSortValues() {
+        String prefix = "keyset-" + UUID.randomUUID();
+        List<User> users = new ArrayList<>();
+        for (Boolean isActive : new Boolean[]{null, true, false, null, true, true, false}) {
+            users.add(user(prefix + "-" + users.size(), isActive));
+        }
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            // MySQL orders nulls first when ascending and last when descending
+            Comparator<User> order = Comparator.comparing(User::getIsActive, Comparator.nullsFirst(Comparator.<Boolean>naturalOrder()))
+                    .thenComparing(User::getId);
+            List<String> expected = users.stream()
+                    .sorted(direction.isAscending() ? order : order.reversed())
+                    .map(User::getUuid)
+                    .toList();
+
+            UserFilter filters = UserFilter.builder().username(prefix).build();
+            filters.setSortBy("isActive");
+            filters.setSortDirection(direction);
+            assertEquals(expected, walk(filters, userService::getUsersFilteredPaginated, UserReadOnlyDTO::getUuid), direction::toString);
+        }
+    }
+
+    @Test
+    @Transactional // the customers are mapped with their lazy orders, as under open-in-view
+    void walksCustomersAcrossDuplicateSortValues() {
+        String lastname = "Keyset-" + UUID.randomUUID();
+        List<Customer> customers = new ArrayList<>();
+        for (String suffix : new String[]{"b", "a", "b", "c", "a", "b"}) {
+            customers.add(customer(lastname + "-" + suffix));
+        }
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            Comparator<Customer> order = Comparator.comparing(Customer::getLastname).thenComparing(Customer::getId);
+            List<String> expected = customers.stream()
+                    .sorted(direction.isAscending() ? order : order.reversed())
+                    .map(Customer::getUuid)
+                    .toList();
+
+            CustomerFilters filters = CustomerFilters.builder().lastname(lastname).build();
+            filters.setSortBy("lastname");
+            filters.setSortDirection(direction);
+            assertEquals(expected, walk(filters, customerService::getCustomersFilteredPaginated, CustomerReadOnlyDTO::getUuid),
+                    direction::toString);
+        }
+    }
+
+    @Test
+    void walksProductsByTheirAuditTimestamps() {
+        Brand brand = brandRepository.save(new Brand(null, "Keyset-" + UUID.randomUUID()));
+        Category category = categoryRepository.save(new Category(null, "Keyset-" + UUID.randomUUID()));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(product(brand, category, i).getId());
+        }
+        List<Product> products = productRepository.findAllById(ids);
+
+        for (String sortBy : List.of("createdAt", "updated")) {
+            Function<Product, LocalDateTime> column = "createdAt".equals(sortBy) ? Product::getCreatedAt : Product::getUpdated;
+            List<String> expected = products.stream()
+                    .sorted(Comparator.comparing(column).thenComparing(Product::getId))
+                    .map(Product::getUuid)
+                    .toList();
+
+            ProductFilters filters = ProductFilters.builder().brand(brand.getBrandName()).build();
+            filters.setSortBy(sortBy);
+            filters.setSortDirection(Sort.Direction.ASC);
+            assertEquals(expected, walk(filters, productService::getProductFilteredPaginated, product -> {
+                // none of the products has a photo
+                assertNull(product.getImage());
+                return product.getUuid();
+            }), sortBy);
+        }
+    }
+
+    @Test
+    @WithMockUser(authorities = "ADMIN_USER")
+    void rejectsATamperedCursorWithBadRequest() throws Exception {
+        List<String> cursors = List.of(
+                "not-a-cursor",
+                new KeysetCursor("isActive", Sort.Direction.ASC, "maybe", 1L).encode(),
+                new KeysetCursor("username", Sort.Direction.ASC, "someone", 1L).encode(),
+                Base64.getUrlEncoder().encodeToString("isActive\u001FASC\u001Fone\u001Ftrue".getBytes(StandardCharsets.UTF_8)));
+
+        for (String cursor : cursors) {
+            mockMvc.perform(post("/api/users/allPaginated")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"sortBy\":\"isActive\",\"after\":\"" + cursor + "\"}"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    private static <F extends GenericFilters, T> List<String> walk(F filters, Function<F, Paginated<T>> fetch,
+                                                                   Function<T, String> uuid) {
+        filters.setPageSize(2);
+        filters.setKeyset(true);
+        List<String> walked = new ArrayList<>();
+        Paginated<T> page;
+        do {
+            page = fetch.apply(filters);
+            page.getData().forEach(row -> walked.add(uuid.apply(row)));
+            filters.setAfter(page.getNextCursor());
+        } while (page.getNextCursor() != null);
+        return walked;
+    }
+
+    private User user(String username, Boolean isActive) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setRole(Role.CUSTOMER_USER);
+        user.setIsActive(isActive);
+        return userRepository.save(user);
+    }
+
+    private Product product(Brand brand, Category category, int i) {
+        Product product = new Product();
+        product.setSku("KS-" + UUID.randomUUID());
+        product.setName("Keyset " + i);
+        product.setPrice(10.0 + i);
+        product.setQuantity(5);
+        product.setInStock(true);
+        product.setIsActive(true);
+        product.setBrand(brand);
+        product.setCategory(category);
+        return productRepository.save(product);
+    }
+
+    private Customer customer(String lastname) {
+        Customer customer = new Customer();
+        customer.setFirstname("Keyset");
+        customer.setLastname(lastname);
+        customer.setUser(user("customer-" + UUID.randomUUID(), true));
+        return customerRepository.save(customer);
+    }
+}
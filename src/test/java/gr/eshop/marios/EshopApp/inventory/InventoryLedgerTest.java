@@ -0,0 +1,92 @@
+package gr.eshop.marios.EshopApp.inventory;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventoryLedgerTest {
+
+    private static final String SKU = "SKU-1";
+
+    private InventoryLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        StockJournal stockJournal = mock(StockJournal.class);
+        when(stockJournal.withStockLevel(eq(SKU), any())).thenAnswer(invocation ->
+                invocation.<BiFunction<Integer, Long, ?>>getArgument(1).apply(10, 0L));
+        ledger = new InventoryLedger(stockJournal, 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void keepsTheReservationsOfOrdersInFlightAcrossARestock() throws Exception {
+        List<TransactionSynchronization> order = inTransaction(() -> ledger.reserve(Map.of(SKU, 4)));
+
+        ledger.restock(SKU, 6);
+        assertThrows(AppObjectInvalidArgumentException.class, () -> ledger.reserve(Map.of(SKU, 3)));
+        ledger.reserve(Map.of(SKU, 2));
+
+        order.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        ledger.reserve(Map.of(SKU, 4));
+        assertThrows(AppObjectInvalidArgumentException.class, () -> ledger.reserve(Map.of(SKU, 1)));
+    }
+
+    @Test
+    void rejectsAStockBelowTheReservedUnits() throws Exception {
+        ledger.reserve(Map.of(SKU, 4));
+
+        assertThrows(AppObjectInvalidArgumentException.class, () -> ledger.restock(SKU, 3));
+        ledger.restock(SKU, 4);
+        assertThrows(AppObjectInvalidArgumentException.class, () -> ledger.reserve(Map.of(SKU, 1)));
+    }
+
+    @Test
+    void boundsReservationsByTheNewStockUntilTheRestockCompletes() throws Exception {
+        List<TransactionSynchronization> restock = inTransaction(() -> ledger.restock(SKU, 3));
+
+        assertThrows(AppObjectInvalidArgumentException.class, () -> ledger.reserve(Map.of(SKU, 4)));
+        ledger.reserve(Map.of(SKU, 3));
+
+        restock.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        ledger.reserve(Map.of(SKU, 7));
+        assertThrows(AppObjectInvalidArgumentException.class, () -> ledger.reserve(Map.of(SKU, 1)));
+    }
+
+    private interface LedgerCall {
+        void run() throws AppObjectInvalidArgumentException;
+    }
+
+    /**
+     * Runs a call as if in a transaction and returns the synchronizations it registered, to be
+     * completed by the test.
+     */
+    private static List<TransactionSynchronization> inTransaction(LedgerCall call) throws AppObjectInvalidArgumentException {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            call.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
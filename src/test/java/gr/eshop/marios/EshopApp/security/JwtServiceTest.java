@@ -0,0 +1,50 @@
+package gr.eshop.marios.EshopApp.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private final JwtService jwtService = new JwtService(100);
+
+    @Test
+    void parsesATokenOnceAndServesItsClaimsFromTheCache() {
+        String token = jwtService.generateToken("alice", "CUSTOMER", "alice-uuid");
+
+        Claims claims = jwtService.parseToken(token);
+
+        assertEquals("alice", claims.getSubject());
+        assertEquals("CUSTOMER", claims.get("role", String.class));
+        assertSame(claims, jwtService.parseToken(token));
+        assertEquals("alice", jwtService.extractSubject(token));
+    }
+
+    @Test
+    void validatesTheSubjectOfTheClaims() {
+        Claims claims = jwtService.parseToken(jwtService.generateToken("alice", "CUSTOMER", "alice-uuid"));
+        UserDetails alice = User.withUsername("alice").password("x").roles("CUSTOMER").build();
+        UserDetails bob = User.withUsername("bob").password("x").roles("CUSTOMER").build();
+
+        assertTrue(jwtService.isTokenValid(claims, alice));
+        assertFalse(jwtService.isTokenValid(claims, bob));
+    }
+
+    @Test
+    void rejectsTamperedAndExpiredTokens() {
+        String token = jwtService.generateToken("alice", "CUSTOMER", "alice-uuid");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThrows(SignatureException.class, () -> jwtService.parseToken(tampered));
+
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -1_000L);
+        String expired = jwtService.generateToken("alice", "CUSTOMER", "alice-uuid");
+        assertThrows(ExpiredJwtException.class, () -> jwtService.parseToken(expired));
+        assertThrows(ExpiredJwtException.class, () -> jwtService.parseToken(expired));
+    }
+}
@@ -0,0 +1,37 @@
+package gr.eshop.marios.EshopApp.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class TokenRevocationListTest {
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void revokesTheTokensIssuedBeforeTheCommitToo() throws Exception {
+        TokenRevocationList revocations = new TokenRevocationList(mock(JwtService.class));
+        TransactionSynchronizationManager.initSynchronization();
+
+        revocations.revoke("user@eshop.gr");
+        Thread.sleep(5);
+        Date issuedBeforeCommit = new Date();
+        assertFalse(revocations.isRevoked("user@eshop.gr", issuedBeforeCommit));
+
+        Thread.sleep(5);
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        assertTrue(revocations.isRevoked("user@eshop.gr", issuedBeforeCommit));
+        assertFalse(revocations.isRevoked("other@eshop.gr", issuedBeforeCommit));
+    }
+}
@@ -0,0 +1,126 @@
+package gr.eshop.marios.EshopApp.service;
+
+import gr.eshop.marios.EshopApp.core.enums.Role;
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.eshop.marios.EshopApp.dto.OrderInsertDTO;
+import gr.eshop.marios.EshopApp.dto.OrderItemInsertDTO;
+import gr.eshop.marios.EshopApp.model.*;
+import gr.eshop.marios.EshopApp.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+class OrderServiceImplConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 100;
+    private static final int ORDERS = 300;
+    private static final int THREADS = 32;
+
+    @Autowired
+    protected OrderServiceImpl orderService;
+    @Autowired
+    protected ProductRepository productRepository;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    protected String sku;
+    protected String customerUuid;
+
+    @BeforeEach
+    void setUp() {
+        Brand brand = brandRepository.save(new Brand(null, "Brand-" + UUID.randomUUID()));
+        Category category = categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID()));
+
+        AttachmentPhoto photo = new AttachmentPhoto();
+        photo.setFilename("hot.jpg");
+        photo.setSavedName("hot.jpg");
+        photo.setFilePath("uploads/hot.jpg");
+
+        sku = "HOT-" + UUID.randomUUID();
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName("Hot product");
+        product.setPrice(10.0);
+        product.setQuantity(INITIAL_STOCK);
+        product.setInStock(true);
+        product.setIsActive(true);
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setAttachmentPhoto(photo);
+        productRepository.save(product);
+
+        User user = new User();
+        user.setUsername("buyer-" + UUID.randomUUID());
+        user.setPassword("secret");
+        user.setRole(Role.CUSTOMER_USER);
+        user.setIsActive(true);
+        user = userRepository.save(user);
+
+        Customer customer = new Customer();
+        customer.setFirstname("Flash");
+        customer.setLastname("Buyer");
+        customer.setUser(user);
+        customerUuid = customerRepository.save(customer).getUuid();
+    }
+
+    @Test
+    void concurrentOrdersForOneSkuNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < ORDERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                OrderInsertDTO order = OrderInsertDTO.builder()
+                        .customerUuid(customerUuid)
+                        .orderItems(List.of(new OrderItemInsertDTO(sku, 1)))
+                        .build();
+                try {
+                    orderService.saveOrderToCustomer(order);
+                    placed.incrementAndGet();
+                } catch (AppObjectInvalidArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        settleStock();
+
+        Product product = productRepository.findBySku(sku).orElseThrow();
+        assertEquals(INITIAL_STOCK, placed.get());
+        assertEquals(ORDERS - INITIAL_STOCK, rejected.get());
+        assertEquals(0, product.getQuantity());
+        assertFalse(product.getInStock());
+    }
+
+    /**
+     * Hook for subclasses that apply stock asynchronously.
+     */
+    protected void settleStock() {
+    }
+}
@@ -0,0 +1,130 @@
+package gr.eshop.marios.EshopApp.service;
+
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.core.enums.Role;
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
+import gr.eshop.marios.EshopApp.dto.OrderInsertDTO;
+import gr.eshop.marios.EshopApp.dto.OrderItemInsertDTO;
+import gr.eshop.marios.EshopApp.dto.OrderReadOnlyDTO;
+import gr.eshop.marios.EshopApp.model.*;
+import gr.eshop.marios.EshopApp.repository.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class OrderServiceImplHistoryTest {
+
+    private static final int ORDERS = 5;
+
+    @Autowired
+    private OrderServiceImpl orderService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    /** Keeps the background catalog refresh from running statements while they are counted. */
+    @MockBean
+    private ProductCatalog productCatalog;
+
+    private String customerUuid;
+    private final List<String> placedNewestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Brand brand = brandRepository.save(new Brand(null, "Brand-" + UUID.randomUUID()));
+        Category category = categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID()));
+
+        AttachmentPhoto photo = new AttachmentPhoto();
+        photo.setFilename("history.jpg");
+        photo.setSavedName(UUID.randomUUID() + ".jpg");
+        photo.setFilePath("uploads/history.jpg");
+
+        String sku = "HIST-" + UUID.randomUUID();
+        Product product = new Product();
+        product.setSku(sku);
+        product.setName("History product");
+        product.setPrice(5.0);
+        product.setQuantity(100);
+        product.setInStock(true);
+        product.setIsActive(true);
+        product.setBrand(brand);
+        product.setCategory(category);
+        product.setAttachmentPhoto(photo);
+        productRepository.save(product);
+
+        User user = new User();
+        user.setUsername("history-" + UUID.randomUUID());
+        user.setPassword("secret");
+        user.setRole(Role.CUSTOMER_USER);
+        user.setIsActive(true);
+        user = userRepository.save(user);
+
+        Customer customer = new Customer();
+        customer.setFirstname("Long");
+        customer.setLastname("Standing");
+        customer.setUser(user);
+        customerUuid = customerRepository.save(customer).getUuid();
+
+        for (int i = 0; i < ORDERS; i++) {
+            OrderReadOnlyDTO order = orderService.saveOrderToCustomer(OrderInsertDTO.builder()
+                    .customerUuid(customerUuid)
+                    .orderItems(List.of(new OrderItemInsertDTO(sku, 1)))
+                    .build());
+            placedNewestFirst.add(0, order.getUuid());
+        }
+    }
+
+    @Test
+    void offsetPagesAreNewestFirstAndTakeConstantStatements() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            Paginated<OrderReadOnlyDTO> page = orderService.getOrderHistory(customerUuid, 0, 2, null);
+
+            assertEquals(placedNewestFirst.subList(0, 2), page.getData().stream().map(OrderReadOnlyDTO::getUuid).toList());
+            assertEquals(ORDERS, page.getTotalElements());
+            assertEquals(1, page.getData().get(0).getOrderItems().size());
+            // customer check, page of ids, count, orders with their items
+            assertEquals(4, statistics.getPrepareStatementCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    void cursorWalksTheWholeHistory() throws Exception {
+        List<String> seen = new ArrayList<>();
+        Paginated<OrderReadOnlyDTO> page = orderService.getOrderHistory(customerUuid, 0, 2, null);
+        seen.addAll(page.getData().stream().map(OrderReadOnlyDTO::getUuid).toList());
+
+        String after = page.getNextCursor();
+        while (after != null) {
+            page = orderService.getOrderHistory(customerUuid, 0, 2, after);
+            seen.addAll(page.getData().stream().map(OrderReadOnlyDTO::getUuid).toList());
+            after = page.getNextCursor();
+        }
+
+        assertEquals(placedNewestFirst, seen);
+    }
+}
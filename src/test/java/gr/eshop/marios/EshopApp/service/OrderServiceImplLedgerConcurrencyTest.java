@@ -0,0 +1,60 @@
+package gr.eshop.marios.EshopApp.service;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectInvalidArgumentException;
+import gr.eshop.marios.EshopApp.dto.OrderInsertDTO;
+import gr.eshop.marios.EshopApp.dto.OrderItemInsertDTO;
+import gr.eshop.marios.EshopApp.dto.ProductUpdateDTO;
+import gr.eshop.marios.EshopApp.inventory.StockJournal;
+import gr.eshop.marios.EshopApp.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "eshop.inventory.ledger.enabled=true")
+class OrderServiceImplLedgerConcurrencyTest extends OrderServiceImplConcurrencyTest {
+
+    @Autowired
+    private StockJournal stockJournal;
+    @Autowired
+    private ProductServiceImpl productService;
+
+    @Override
+    protected void settleStock() {
+        stockJournal.reconcile();
+    }
+
+    @Test
+    void restockedSkuCanBeOrderedAgain() throws Exception {
+        orderService.saveOrderToCustomer(order(100));
+        settleStock();
+        assertThrows(AppObjectInvalidArgumentException.class, () -> orderService.saveOrderToCustomer(order(1)));
+
+        Product product = productRepository.findBySku(sku).orElseThrow();
+        productService.updateProduct(ProductUpdateDTO.builder()
+                .id(product.getId())
+                .uuid(product.getUuid())
+                .name(product.getName())
+                .brandName(product.getBrand().getBrandName())
+                .categoryName(product.getCategory().getCategoryName())
+                .sku(sku)
+                .price(product.getPrice())
+                .quantity(5)
+                .isActive(true)
+                .build(), null);
+
+        orderService.saveOrderToCustomer(order(2));
+        settleStock();
+        assertEquals(3, productRepository.findBySku(sku).orElseThrow().getQuantity());
+    }
+
+    private OrderInsertDTO order(int quantity) {
+        return OrderInsertDTO.builder()
+                .customerUuid(customerUuid)
+                .orderItems(List.of(new OrderItemInsertDTO(sku, quantity)))
+                .build();
+    }
+}
@@ -0,0 +1,155 @@
+package gr.eshop.marios.EshopApp.service;
+
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
+import gr.eshop.marios.EshopApp.core.filters.ProductFilters;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.model.Brand;
+import gr.eshop.marios.EshopApp.model.Category;
+import gr.eshop.marios.EshopApp.model.Product;
+import gr.eshop.marios.EshopApp.repository.BrandRepository;
+import gr.eshop.marios.EshopApp.repository.CategoryRepository;
+import gr.eshop.marios.EshopApp.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "eshop.catalog.filter-index.enabled=true")
+class ProductServiceImplFilterIndexTest {
+
+    @Autowired
+    private ProductServiceImpl productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    private Statistics statistics;
+    private String brandName;
+    private String categoryName;
+
+    @BeforeEach
+    void setUp() {
+        Brand brand = brandRepository.save(new Brand(null, "Brand-" + UUID.randomUUID()));
+        Category[] categories = {
+                categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID())),
+                categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID()))
+        };
+        brandName = brand.getBrandName();
+        categoryName = categories[0].getCategoryName();
+
+        for (int i = 0; i < 12; i++) {
+            Product product = new Product();
+            product.setSku("FI-" + UUID.randomUUID());
+            product.setName("Indexed " + i);
+            product.setPrice(10.0 + i);
+            product.setQuantity(i % 3 == 0 ? 0 : 5);
+            product.setInStock(i % 3 != 0);
+            product.setIsActive(i % 4 != 0);
+            product.setBrand(brand);
+            product.setCategory(categories[i % 2]);
+            productRepository.save(product);
+        }
+        productCatalog.refreshAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void servesFilteredPagesAndFacetsWithoutQueries() {
+        ProductFilters filters = ProductFilters.builder().brand(brandName).isInStock(true).withFacets(true).build();
+        filters.setPageSize(5);
+
+        Paginated<ProductReadOnlyDTO> page = productService.getProductFilteredPaginated(filters);
+
+        assertEquals(5, page.getData().size());
+        assertEquals(8, page.getTotalElements());
+        assertEquals(8L, page.getFacets().get("brand").get(brandName));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void matchesTheSpecificationPath() {
+        List<ProductFilters> cases = List.of(
+                ProductFilters.builder().brand(brandName).build(),
+                ProductFilters.builder().brand(brandName).category(categoryName).isActive(true).withFacets(true).build(),
+                ProductFilters.builder().brand(brandName).isInStock(false).name("indexed").build(),
+                ProductFilters.builder().category(categoryName).isActive(false).build(),
+                ProductFilters.builder().brand(brandName).minPrice(12.0).maxPrice(19.0).build(),
+                ProductFilters.builder().brand(brandName).isActive(true).maxPrice(20.5).build());
+
+        for (ProductFilters filters : cases) {
+            for (String sortBy : List.of("id", "price")) {
+                filters.setPageSize(4);
+                filters.setPage(1);
+                filters.setSortBy(sortBy);
+                filters.setSortDirection(Sort.Direction.DESC);
+
+                Paginated<ProductReadOnlyDTO> indexed = productService.getProductFilteredPaginated(filters);
+                Paginated<ProductReadOnlyDTO> queried = withoutFilterIndex(() -> productService.getProductFilteredPaginated(filters));
+
+                assertEquals(ids(queried), ids(indexed), filters::toString);
+                assertEquals(queried.getTotalElements(), indexed.getTotalElements(), filters::toString);
+                assertEquals(queried.getFacets(), indexed.getFacets(), filters::toString);
+            }
+        }
+    }
+
+    @Test
+    void chunksTheIdsOfSearchesMatchingManyProducts() {
+        ProductFilters filters = ProductFilters.builder().brand(brandName).name("ÍNDEXED").build();
+        filters.setPageSize(20);
+        filters.setSortBy("name");
+        List<Long> inOneList = ids(productService.getProductFilteredPaginated(filters));
+
+        Object target = AopTestUtils.getTargetObject(productService);
+        ReflectionTestUtils.setField(target, "searchIdChunkSize", 5);
+        try {
+            assertEquals(inOneList, ids(productService.getProductFilteredPaginated(filters)));
+            assertEquals(12, inOneList.size());
+        } finally {
+            ReflectionTestUtils.setField(target, "searchIdChunkSize", 1000);
+        }
+    }
+
+    private <T> T withoutFilterIndex(Supplier<T> call) {
+        Object target = AopTestUtils.getTargetObject(productService);
+        ReflectionTestUtils.setField(target, "filterIndexEnabled", false);
+        try {
+            return call.get();
+        } finally {
+            ReflectionTestUtils.setField(target, "filterIndexEnabled", true);
+        }
+    }
+
+    private static List<Long> ids(Paginated<ProductReadOnlyDTO> page) {
+        return page.getData().stream().map(ProductReadOnlyDTO::getId).toList();
+    }
+}
@@ -0,0 +1,146 @@
+package gr.eshop.marios.EshopApp.service;
+
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.core.filters.Paginated;
+import gr.eshop.marios.EshopApp.core.filters.ProductFilters;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.model.*;
+import gr.eshop.marios.EshopApp.repository.BrandRepository;
+import gr.eshop.marios.EshopApp.repository.CategoryRepository;
+import gr.eshop.marios.EshopApp.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// measures the Specification path, which the in-memory filter index would otherwise bypass
+@SpringBootTest
+class ProductServiceImplQueryCountTest {
+
+    private static final int PRODUCTS = 25;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private ProductServiceImpl productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    private Statistics statistics;
+    private String firstBrandName;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < PRODUCTS; i++) {
+            Brand brand = brandRepository.save(new Brand(null, "Brand-" + UUID.randomUUID()));
+            if (firstBrandName == null) firstBrandName = brand.getBrandName();
+            Category category = categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID()));
+
+            AttachmentPhoto photo = new AttachmentPhoto();
+            photo.setFilename("product.jpg");
+            photo.setSavedName(UUID.randomUUID() + ".jpg");
+            photo.setFilePath("uploads/product.jpg");
+
+            Product product = new Product();
+            product.setSku("QC-" + UUID.randomUUID());
+            product.setName("Product " + i);
+            product.setPrice(10.0 + i);
+            product.setQuantity(5);
+            product.setInStock(true);
+            product.setIsActive(true);
+            product.setBrand(brand);
+            product.setCategory(category);
+            product.setAttachmentPhoto(photo);
+            productRepository.save(product);
+        }
+
+        productCatalog.refreshAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void filteredPageLoadsBrandCategoryAndPhotoWithoutExtraSelects() {
+        ProductFilters filters = ProductFilters.builder().build();
+        filters.setPageSize(PAGE_SIZE);
+
+        Paginated<ProductReadOnlyDTO> page = productService.getProductFilteredPaginated(filters);
+
+        assertEquals(PAGE_SIZE, page.getData().size());
+        // one select for the page, one for the total count
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void keysetPageLoadsBrandCategoryAndPhotoWithoutExtraSelects() {
+        ProductFilters filters = ProductFilters.builder().name("Product").build();
+        filters.setPageSize(PAGE_SIZE);
+        filters.setKeyset(true);
+
+        Paginated<ProductReadOnlyDTO> page = productService.getProductFilteredPaginated(filters);
+
+        assertEquals(PAGE_SIZE, page.getData().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void brandFilterReusesTheProjectionJoin() {
+        ProductFilters filters = ProductFilters.builder().brand(firstBrandName).build();
+
+        Paginated<ProductReadOnlyDTO> page = productService.getProductFilteredPaginated(filters);
+
+        assertEquals(1, page.getData().size());
+        assertEquals(firstBrandName, page.getData().get(0).getBrand().getBrandName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void facetsComeBackWithThePageFromOneGroupByQuery() {
+        ProductFilters filters = ProductFilters.builder().brand(firstBrandName).withFacets(true).build();
+
+        Paginated<ProductReadOnlyDTO> page = productService.getProductFilteredPaginated(filters);
+
+        assertEquals(Map.of(firstBrandName, 1L), page.getFacets().get("brand"));
+        assertEquals(Map.of(page.getData().get(0).getCategory().getCategoryName(), 1L), page.getFacets().get("category"));
+        assertEquals(Map.of("inStock", 1L, "outOfStock", 0L), page.getFacets().get("stock"));
+        // one select for the page, one for the facets
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void facetCountsAddUpToTheTotal() {
+        ProductFilters filters = ProductFilters.builder().withFacets(true).build();
+
+        Paginated<ProductReadOnlyDTO> page = productService.getProductFilteredPaginated(filters);
+
+        for (Map<String, Long> facet : page.getFacets().values()) {
+            assertEquals(page.getTotalElements(), facet.values().stream().mapToLong(Long::longValue).sum());
+        }
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,181 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.core.enums.Role;
+import gr.eshop.marios.EshopApp.dto.OrderInsertDTO;
+import gr.eshop.marios.EshopApp.dto.OrderItemInsertDTO;
+import gr.eshop.marios.EshopApp.dto.ProductInsertDTO;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.model.Brand;
+import gr.eshop.marios.EshopApp.model.Category;
+import gr.eshop.marios.EshopApp.model.Customer;
+import gr.eshop.marios.EshopApp.model.User;
+import gr.eshop.marios.EshopApp.repository.*;
+import gr.eshop.marios.EshopApp.service.OrderServiceImpl;
+import gr.eshop.marios.EshopApp.service.ProductServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "eshop.uploads.orphan-grace=0s")
+class ImageBlobSweeperTest {
+
+    @Autowired
+    private ImageStorage imageStorage;
+    @Autowired
+    private BlobStore blobStore;
+    @Autowired
+    private ImageBlobSweeper sweeper;
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+    @Autowired
+    private ProductServiceImpl productService;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private OrderServiceImpl orderService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @MockBean
+    private ProductCatalog productCatalog;
+
+    @Test
+    void storesTheSameContentOnceAndDeletesItWhenUnreferenced() throws Exception {
+        byte[] content = ("photo-" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        StagedImage first = imageStorage.stage(new MockMultipartFile("photoProduct", "front.jpg", "image/jpeg", content));
+        StagedImage second = imageStorage.stage(new MockMultipartFile("photoProduct", "again.jpg", "image/jpeg", content));
+
+        String savedName = imageStorage.store(first);
+        assertEquals(savedName, imageStorage.store(second));
+        imageStorage.discard(first);
+        imageStorage.discard(second);
+
+        assertEquals(first.contentHash() + ".jpg", savedName);
+        assertArrayEquals(content, blobStore.open(savedName).readAllBytes());
+        assertEquals(2, imageBlobRepository.findById(first.contentHash()).orElseThrow().getRefCount());
+
+        imageStorage.release(first.contentHash());
+        sweeper.sweep();
+        assertTrue(blobStore.exists(savedName));
+
+        imageStorage.release(first.contentHash());
+        sweeper.sweep();
+        assertFalse(blobStore.exists(savedName));
+        assertTrue(imageBlobRepository.findById(first.contentHash()).isEmpty());
+    }
+
+    @Test
+    void countsBothReferencesOfConcurrentUploadsOfTheSameNewContent() throws Exception {
+        byte[] content = ("photo-" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        Queue<StagedImage> staged = new ConcurrentLinkedQueue<>();
+        Callable<String> upload = () -> {
+            StagedImage image = imageStorage.stage(new MockMultipartFile("photoProduct", "left.jpg", "image/jpeg", content));
+            staged.add(image);
+            return imageStorage.store(image);
+        };
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> left = executor.submit(() -> {
+                start.await();
+                return upload.call();
+            });
+            Future<String> right = executor.submit(() -> {
+                start.await();
+                return upload.call();
+            });
+            start.countDown();
+
+            String savedName = left.get(30, TimeUnit.SECONDS);
+            assertEquals(savedName, right.get(30, TimeUnit.SECONDS));
+            assertArrayEquals(content, blobStore.open(savedName).readAllBytes());
+            assertEquals(2, imageBlobRepository.findById(staged.peek().contentHash()).orElseThrow().getRefCount());
+        } finally {
+            executor.shutdownNow();
+            staged.forEach(imageStorage::discard);
+        }
+    }
+
+    @Test
+    void insertsTheBlobAgainWhenSweptBetweenStagingAndStoring() throws Exception {
+        byte[] content = ("photo-" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        StagedImage image = imageStorage.stage(new MockMultipartFile("photoProduct", "late.jpg", "image/jpeg", content));
+        assertTrue(imageStorage.deleteIfOrphaned(image.contentHash()));
+
+        String savedName = imageStorage.store(image);
+        imageStorage.discard(image);
+
+        assertEquals(image.contentHash() + ".jpg", savedName);
+        assertArrayEquals(content, blobStore.open(savedName).readAllBytes());
+        assertEquals(1, imageBlobRepository.findById(image.contentHash()).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void releasesTheImageOfADeletedProduct() throws Exception {
+        String brand = brandRepository.save(new Brand(null, "Brand-" + UUID.randomUUID())).getBrandName();
+        String category = categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID())).getCategoryName();
+        byte[] content = ("photo-" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        StagedImage image = imageStorage.stage(new MockMultipartFile("photoProduct", "p.png", "image/png", content));
+
+        ProductReadOnlyDTO product = productService.saveProduct(new ProductInsertDTO("BL-" + UUID.randomUUID(),
+                "Blob product", 10.0, brand, true, category, 1, null), image);
+        String savedName = image.contentHash() + ".png";
+        assertTrue(blobStore.exists(savedName));
+
+        productService.deleteProduct(product.getId());
+        sweeper.sweep();
+
+        assertFalse(blobStore.exists(savedName));
+    }
+
+    @Test
+    void keepsTheImageOfAnOrderedProduct() throws Exception {
+        String brand = brandRepository.save(new Brand(null, "Brand-" + UUID.randomUUID())).getBrandName();
+        String category = categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID())).getCategoryName();
+        byte[] content = ("photo-" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        StagedImage image = imageStorage.stage(new MockMultipartFile("photoProduct", "o.png", "image/png", content));
+        String sku = "BL-" + UUID.randomUUID();
+        ProductReadOnlyDTO product = productService.saveProduct(new ProductInsertDTO(sku,
+                "Ordered product", 10.0, brand, true, category, 5, null), image);
+
+        User user = new User();
+        user.setUsername("blob-" + UUID.randomUUID());
+        user.setPassword("secret");
+        user.setRole(Role.CUSTOMER_USER);
+        Customer customer = new Customer();
+        customer.setFirstname("Blob");
+        customer.setLastname("Keeper");
+        customer.setUser(userRepository.save(user));
+        orderService.saveOrderToCustomer(OrderInsertDTO.builder()
+                .customerUuid(customerRepository.save(customer).getUuid())
+                .orderItems(List.of(new OrderItemInsertDTO(sku, 1)))
+                .build());
+
+        productService.deleteProduct(product.getId());
+        sweeper.sweep();
+
+        assertTrue(blobStore.exists(image.contentHash() + ".png"));
+        assertEquals(1, imageBlobRepository.findById(image.contentHash()).orElseThrow().getRefCount());
+    }
+}
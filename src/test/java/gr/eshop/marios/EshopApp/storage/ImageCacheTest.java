@@ -0,0 +1,81 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageCacheTest {
+
+    private static final String HASH = "9f86d081884c7d65";
+
+    private InMemoryBlobStore blobStore;
+    private SimpleMeterRegistry meterRegistry;
+    private ImageCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new InMemoryBlobStore();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ImageCache(blobStore, meterRegistry, DataSize.ofBytes(100), DataSize.ofBytes(40));
+        put(HASH + ".png", 30);
+        put(ImageVariant.THUMBNAIL.fileName(HASH), 10);
+        put("large.png", 50);
+    }
+
+    @Test
+    void keepsTheImageBytesOffHeapAfterTheFirstRead() throws Exception {
+        ByteBuffer first = cache.get(HASH + ".png");
+        blobStore.delete(HASH + ".png");
+        ByteBuffer second = cache.get(HASH + ".png");
+
+        assertSame(first, second);
+        assertTrue(second.isDirect());
+        assertTrue(second.isReadOnly());
+        assertEquals(30, second.limit());
+        assertEquals(29, second.get(29));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "imageBytes").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "imageBytes").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void doesNotCacheLargeOrMissingImages() throws Exception {
+        assertNull(cache.get("large.png"));
+        assertNull(cache.get("missing.png"));
+    }
+
+    @Test
+    void remembersThatAnImageIsTooLarge() throws Exception {
+        assertNull(cache.get("large.png"));
+        assertNull(cache.get("large.png"));
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "imageBytes").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "imageBytes").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void dropsAnImageAndItsVariants() throws Exception {
+        assertNotNull(cache.get(HASH + ".png"));
+        assertNotNull(cache.get(ImageVariant.THUMBNAIL.fileName(HASH)));
+        blobStore.delete(HASH + ".png");
+        blobStore.delete(ImageVariant.THUMBNAIL.fileName(HASH));
+
+        cache.invalidateImage(HASH);
+
+        assertNull(cache.get(HASH + ".png"));
+        assertNull(cache.get(ImageVariant.THUMBNAIL.fileName(HASH)));
+    }
+
+    private void put(String key, int size) throws Exception {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) content[i] = (byte) i;
+        Path source = Files.write(Files.createTempFile(blobStore.tempDir(), "image-", ".part"), content);
+        blobStore.put(key, source);
+    }
+}
@@ -0,0 +1,189 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import gr.eshop.marios.EshopApp.core.exceptions.AppObjectNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageServerTest {
+
+    private static final String NAME = "0123abcd.png";
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalDiskBlobStore blobStore;
+    private ImageServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        blobStore = new LocalDiskBlobStore(uploadDir.toString());
+        put(blobStore, NAME);
+        Files.write(blobStore.tempDir().resolve("upload-1.part"), CONTENT);
+        server = new ImageServer(blobStore, cache(blobStore, DataSize.ofBytes(0)));
+    }
+
+    @Test
+    void servesTheImageWithImmutableCachingHeaders() throws Exception {
+        MockHttpServletResponse response = serve(request());
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+        assertEquals(CONTENT.length, response.getContentLengthLong());
+        assertEquals("image/png", response.getContentType());
+        assertEquals("\"" + NAME + "\"", response.getHeader("ETag"));
+        assertEquals("max-age=31536000, public, immutable", response.getHeader("Cache-Control"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+    }
+
+    @Test
+    void answersAMatchingRevalidationWithNotModified() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("If-None-Match", "\"other\", W/\"" + NAME + "\"");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals("\"" + NAME + "\"", response.getHeader("ETag"));
+    }
+
+    @Test
+    void servesASingleByteRange() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=2-4");
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+        assertEquals("234", response.getContentAsString());
+
+        MockHttpServletRequest suffix = request();
+        suffix.addHeader("Range", "bytes=-3");
+        assertEquals("789", serve(suffix).getContentAsString());
+    }
+
+    @Test
+    void rejectsARangeBeyondTheEndOfTheImage() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=10-");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void ignoresTheRangeOfAStaleIfRange() throws Exception {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", "\"another-image.png\"");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void handsTheBodyToSendfileWhenTheConnectorSupportsIt() throws Exception {
+        MockHttpServletRequest request = request();
+        request.setAttribute(ImageServer.SENDFILE_SUPPORTED, Boolean.TRUE);
+        request.addHeader("Range", "bytes=5-");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(5, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(blobStore.shardedPath(NAME).toRealPath().toString(), request.getAttribute(ImageServer.SENDFILE_FILENAME));
+        assertEquals(5L, request.getAttribute(ImageServer.SENDFILE_START));
+        assertEquals(10L, request.getAttribute(ImageServer.SENDFILE_END));
+    }
+
+    @Test
+    void streamsTheImagesOfAStoreWithoutLocalFiles() throws Exception {
+        InMemoryBlobStore memory = new InMemoryBlobStore();
+        put(memory, NAME);
+        server = new ImageServer(memory, cache(memory, DataSize.ofBytes(0)));
+        MockHttpServletRequest request = request();
+        request.setAttribute(ImageServer.SENDFILE_SUPPORTED, Boolean.TRUE);
+        request.addHeader("Range", "bytes=3-5");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("345", response.getContentAsString());
+        assertNull(request.getAttribute(ImageServer.SENDFILE_FILENAME));
+    }
+
+    @Test
+    void servesTheHotImagesFromTheCache() throws Exception {
+        server = new ImageServer(blobStore, cache(blobStore, DataSize.ofKilobytes(1)));
+        serve(request());
+
+        MockHttpServletRequest request = request();
+        request.setAttribute(ImageServer.SENDFILE_SUPPORTED, Boolean.TRUE);
+        request.addHeader("Range", "bytes=6-");
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 6-9/10", response.getHeader("Content-Range"));
+        assertEquals("6789", response.getContentAsString());
+        assertNull(request.getAttribute(ImageServer.SENDFILE_FILENAME));
+    }
+
+    @Test
+    void answersRevalidationsAndHeadRequestsWithoutReadingTheImage() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        server = new ImageServer(blobStore, new ImageCache(blobStore, meterRegistry, DataSize.ofMegabytes(1), DataSize.ofKilobytes(1)));
+
+        MockHttpServletRequest revalidation = request();
+        revalidation.addHeader("If-None-Match", "\"" + NAME + "\"");
+        assertEquals(304, serve(revalidation).getStatus());
+        MockHttpServletRequest head = new MockHttpServletRequest("HEAD", "/uploads/" + NAME);
+        assertEquals(10, serve(head).getContentLengthLong());
+
+        assertEquals(0.0, meterRegistry.get("cache.gets").tag("cache", "imageBytes").tag("result", "miss").functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("cache.gets").tag("cache", "imageBytes").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void servesOnlyStoredImages() {
+        assertThrows(AppObjectNotFoundException.class, () -> server.serve("missing.png", request(), new MockHttpServletResponse()));
+        assertThrows(AppObjectNotFoundException.class, () -> server.serve(".tmp", request(), new MockHttpServletResponse()));
+        assertThrows(AppObjectNotFoundException.class, () -> server.serve("..", request(), new MockHttpServletResponse()));
+    }
+
+    private static void put(BlobStore store, String key) throws Exception {
+        Path source = Files.createTempFile(store.tempDir(), "image-", ".part");
+        Files.write(source, CONTENT);
+        store.put(key, source);
+    }
+
+    private static ImageCache cache(BlobStore store, DataSize maxEntrySize) {
+        return new ImageCache(store, new SimpleMeterRegistry(), DataSize.ofMegabytes(1), maxEntrySize);
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/uploads/" + NAME);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        server.serve(NAME, request, response);
+        return response;
+    }
+}
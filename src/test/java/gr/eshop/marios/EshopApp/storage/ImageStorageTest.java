@@ -0,0 +1,84 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import gr.eshop.marios.EshopApp.repository.ImageBlobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ImageStorageTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalDiskBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalDiskBlobStore(uploadDir.toString());
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void stagesTheUploadAndHashesItOnTheWay() throws Exception {
+        byte[] content = "x".repeat(3_000_000).getBytes(StandardCharsets.UTF_8);
+        ImageStorage storage = new ImageStorage(blobStore, mock(ImageBlobRepository.class), mock(PlatformTransactionManager.class));
+
+        StagedImage image = storage.stage(new MockMultipartFile("photoProduct", "laptop.png", "image/png", content));
+
+        assertEquals(content.length, image.size());
+        assertArrayEquals(content, Files.readAllBytes(image.tempFile()));
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)), image.contentHash());
+        assertEquals("laptop.png", image.originalFilename());
+        assertEquals("image/png", image.contentType());
+        assertNull(storage.stage(new MockMultipartFile("photoProduct", new byte[0])));
+    }
+
+    @Test
+    void movesTheImageIntoPlaceOnlyAfterCommit() throws Exception {
+        ImageStorage storage = new ImageStorage(blobStore, mock(ImageBlobRepository.class), mock(PlatformTransactionManager.class));
+        StagedImage image = storage.stage(new MockMultipartFile("photoProduct", "a.png", "image/png", new byte[]{1, 2, 3}));
+
+        TransactionSynchronizationManager.initSynchronization();
+        storage.storeAfterCommit(image, "a.png");
+        assertFalse(blobStore.exists("a.png"));
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        assertArrayEquals(new byte[]{1, 2, 3}, blobStore.open("a.png").readAllBytes());
+        assertFalse(Files.exists(image.tempFile()));
+    }
+
+    @Test
+    void leavesNothingBehindOnRollback() throws Exception {
+        ImageStorage storage = new ImageStorage(blobStore, mock(ImageBlobRepository.class), mock(PlatformTransactionManager.class));
+        StagedImage image = storage.stage(new MockMultipartFile("photoProduct", "b.png", "image/png", new byte[]{1}));
+
+        TransactionSynchronizationManager.initSynchronization();
+        storage.storeAfterCommit(image, "b.png");
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        storage.discard(image);
+
+        assertFalse(blobStore.exists("b.png"));
+        assertFalse(Files.exists(image.tempFile()));
+    }
+}
@@ -0,0 +1,115 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import gr.eshop.marios.EshopApp.catalog.ProductCatalog;
+import gr.eshop.marios.EshopApp.dto.ProductInsertDTO;
+import gr.eshop.marios.EshopApp.dto.ProductReadOnlyDTO;
+import gr.eshop.marios.EshopApp.model.AttachmentPhoto;
+import gr.eshop.marios.EshopApp.model.Brand;
+import gr.eshop.marios.EshopApp.model.Category;
+import gr.eshop.marios.EshopApp.repository.BrandRepository;
+import gr.eshop.marios.EshopApp.repository.CategoryRepository;
+import gr.eshop.marios.EshopApp.repository.ProductRepository;
+import gr.eshop.marios.EshopApp.service.ProductServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "eshop.uploads.variants.max-pixels=6000000")
+class ImageVariantGeneratorTest {
+
+    @Autowired
+    private ImageVariantGenerator generator;
+    @Autowired
+    private ImageStorage imageStorage;
+    @Autowired
+    private BlobStore blobStore;
+    @Autowired
+    private ProductServiceImpl productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BrandRepository brandRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @MockBean
+    private ProductCatalog productCatalog;
+
+    @Test
+    void scalesDownKeepingTheAspectRatio() {
+        BufferedImage scaled = ImageVariantGenerator.scale(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_ARGB), 160);
+
+        assertEquals(160, scaled.getWidth());
+        assertEquals(80, scaled.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, scaled.getType());
+    }
+
+    @Test
+    void derivesTheVariantsOfAProductImage() throws Exception {
+        String brand = brandRepository.save(new Brand(null, "Brand-" + UUID.randomUUID())).getBrandName();
+        String category = categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID())).getCategoryName();
+        StagedImage image = imageStorage.stage(new MockMultipartFile("photoProduct", "wide.png", "image/png", png(800, 400)));
+        ProductReadOnlyDTO product = productService.saveProduct(new ProductInsertDTO("VAR-" + UUID.randomUUID(),
+                "Variant product", 10.0, brand, true, category, 1, null), image);
+
+        generator.generate(image.contentHash(), image.contentHash() + ".png");
+
+        AttachmentPhoto photo = productRepository.findById(product.getId()).orElseThrow().getAttachmentPhoto();
+        String thumbnailName = ImageVariant.THUMBNAIL.fileName(image.contentHash());
+        String cardName = ImageVariant.CARD.fileName(image.contentHash());
+        assertEquals("uploads/" + thumbnailName, photo.getThumbnailPath());
+        assertEquals("uploads/" + cardName, photo.getCardPath());
+        // the original is smaller than the detail variant and stands in for it
+        assertEquals(photo.getFilePath(), photo.getDetailPath());
+
+        BufferedImage thumbnail = ImageIO.read(blobStore.open(thumbnailName));
+        assertEquals(160, thumbnail.getWidth());
+        assertEquals(80, thumbnail.getHeight());
+        assertEquals(480, ImageIO.read(blobStore.open(cardName)).getWidth());
+    }
+
+    @Test
+    void derivesTheVariantsOfALargeImageFromASubsampledDecode() throws Exception {
+        ProductReadOnlyDTO product = saveProduct("large.png", png(5000, 1000));
+        AttachmentPhoto photo = productRepository.findById(product.getId()).orElseThrow().getAttachmentPhoto();
+
+        generator.generate(photo.getContentHash(), photo.getSavedName());
+
+        BufferedImage detail = ImageIO.read(blobStore.open(ImageVariant.DETAIL.fileName(photo.getContentHash())));
+        assertEquals(1200, detail.getWidth());
+        assertEquals(240, detail.getHeight());
+    }
+
+    @Test
+    void leavesAnImageAboveThePixelBudgetWithoutVariants() throws Exception {
+        ProductReadOnlyDTO product = saveProduct("huge.png", png(4000, 2000));
+        AttachmentPhoto photo = productRepository.findById(product.getId()).orElseThrow().getAttachmentPhoto();
+
+        generator.generate(photo.getContentHash(), photo.getSavedName());
+
+        assertFalse(blobStore.exists(ImageVariant.THUMBNAIL.fileName(photo.getContentHash())));
+        assertNull(productRepository.findById(product.getId()).orElseThrow().getAttachmentPhoto().getThumbnailPath());
+    }
+
+    private ProductReadOnlyDTO saveProduct(String fileName, byte[] content) throws Exception {
+        String brand = brandRepository.save(new Brand(null, "Brand-" + UUID.randomUUID())).getBrandName();
+        String category = categoryRepository.save(new Category(null, "Category-" + UUID.randomUUID())).getCategoryName();
+        StagedImage image = imageStorage.stage(new MockMultipartFile("photoProduct", fileName, "image/png", content));
+        return productService.saveProduct(new ProductInsertDTO("VAR-" + UUID.randomUUID(),
+                "Variant product", 10.0, brand, true, category, 1, null), image);
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,47 @@
+package gr.eshop.marios.EshopApp.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalDiskBlobStoreTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    void fansTheBlobsOutOverTwoDirectoryLevels() throws Exception {
+        LocalDiskBlobStore store = new LocalDiskBlobStore(uploadDir.toString());
+        Path source = Files.write(Files.createTempFile(store.tempDir(), "blob-", ".part"), new byte[]{1, 2, 3});
+
+        store.put("abc.png", source);
+
+        Path file = store.localFile("abc.png").orElseThrow();
+        assertEquals(uploadDir, file.getParent().getParent().getParent());
+        assertEquals(2, file.getParent().getFileName().toString().length());
+        assertEquals(3, store.size("abc.png"));
+        assertArrayEquals(new byte[]{1, 2, 3}, store.open("abc.png").readAllBytes());
+        assertFalse(Files.exists(source));
+
+        assertTrue(store.delete("abc.png"));
+        assertFalse(store.exists("abc.png"));
+        assertFalse(store.delete("abc.png"));
+    }
+
+    @Test
+    void findsTheBlobsStoredBeforeTheFanOut() throws Exception {
+        LocalDiskBlobStore store = new LocalDiskBlobStore(uploadDir.toString());
+        Files.write(uploadDir.resolve("legacy.jpg"), new byte[]{7});
+
+        assertTrue(store.exists("legacy.jpg"));
+        assertEquals(uploadDir.resolve("legacy.jpg"), store.localFile("legacy.jpg").orElseThrow());
+        assertFalse(store.exists(".tmp"));
+
+        assertTrue(store.delete("legacy.jpg"));
+        assertFalse(Files.exists(uploadDir.resolve("legacy.jpg")));
+    }
+}